@@ -4,6 +4,8 @@ import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.*;
 import android.graphics.drawable.Drawable;
+import android.os.Trace;
+import android.util.DisplayMetrics;
 import androidx.core.view.GestureDetectorCompat;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
@@ -14,6 +16,8 @@ import com.github.fujianlian.klinechart.base.IDateTimeFormatter;
 import com.github.fujianlian.klinechart.base.IValueFormatter;
 import com.github.fujianlian.klinechart.container.HTDrawContext;
 import com.github.fujianlian.klinechart.container.HTKLineContainerView;
+import com.github.fujianlian.klinechart.container.HTOrderLine;
+import com.github.fujianlian.klinechart.container.HTOrderLineSet;
 import com.github.fujianlian.klinechart.container.HTPoint;
 import com.github.fujianlian.klinechart.draw.MainDraw;
 import com.github.fujianlian.klinechart.draw.PrimaryStatus;
@@ -72,9 +76,9 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
     private Float mVolMinValue = Float.MIN_VALUE;
 
-    private Float mChildMaxValue = Float.MAX_VALUE;
+    private float mChildMaxValue = Float.MAX_VALUE;
 
-    private Float mChildMinValue = Float.MIN_VALUE;
+    private float mChildMinValue = Float.MIN_VALUE;
 
     private int mStartIndex = 0;
 
@@ -133,6 +137,49 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
     //当前点的个数
     private int mItemCount;
+
+    //drawK 逐根绘制时 readItem 复用的实体
+    private final KLineEntity mDrawCurrent = new KLineEntity();
+    private final KLineEntity mDrawLast = new KLineEntity();
+
+    //可见区域最大值/最小值索引, 列式存储时代替逐点遍历
+    private final KLineExtremaIndex mExtremaIndex = new KLineExtremaIndex();
+
+    //IChartDraw.extendRange 复用的区间
+    private final float[] mRange = new float[2];
+
+    //onDraw 各阶段耗时
+    private final HTKLineRenderStats mRenderStats = new HTKLineRenderStats();
+
+    //时间轴刻度和文字宽度
+    private final HTKLineAxisLabels mAxisLabels = new HTKLineAxisLabels();
+
+    //上一帧画出的最新价, 判断尾部变化是否需要重绘
+    private float mDrawnClosePrice = Float.NaN;
+
+    //数据或配置变化时递增, 图例缓存以此失效
+    private int mLegendGeneration;
+
+    //drawK 期间收集的指标折线
+    private final HTKLineLineBatch mLineBatch = new HTKLineLineBatch();
+
+    //缩小到多根 K 线共用一列像素时按桶绘制
+    private final KLineLodIndex mLodIndex = new KLineLodIndex();
+
+    //本帧每个桶的 K 线数, 1 表示逐根绘制
+    private int mLodBucketSize = 1;
+
+    //正在画桶内指标的最小到最大值, 此时不画蜡烛和柱子
+    private boolean mDrawingLodEnvelope;
+
+    private final KLineEntity mLodLast = new KLineEntity();
+
+    private final KLineEntity mLodCurrent = new KLineEntity();
+
+    private final KLineEntity mLodMin = new KLineEntity();
+
+    private final KLineEntity mLodMax = new KLineEntity();
+
     private IChartDraw mChildDraw;
     private List<IChartDraw> mChildDraws = new ArrayList<>();
 
@@ -240,40 +287,40 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
 
     private void initRect() {
-        android.util.Log.d("BaseKLineChartView", "initRect() START");
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "initRect() START");
         try {
             mTopPadding = (int) configManager.paddingTop;
             mChildPadding = 50;
             mBottomPadding = (int) configManager.paddingBottom;
-            android.util.Log.d("BaseKLineChartView", "Padding values - Top: " + mTopPadding + ", Child: " + mChildPadding + ", Bottom: " + mBottomPadding);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Padding values - Top: " + mTopPadding + ", Child: " + mChildPadding + ", Bottom: " + mBottomPadding);
 
             Paint.FontMetrics fm = mTextPaint.getFontMetrics();
             int textHeight = (int)((fm.descent - fm.ascent) / 2.0);
-            android.util.Log.d("BaseKLineChartView", "TextHeight: " + textHeight);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "TextHeight: " + textHeight);
 
             int allHeight = this.getHeight() - mBottomPadding;
             int mMainHeight = (int) (allHeight * configManager.mainFlex);
             int mVolHeight = (int) (allHeight * configManager.volumeFlex);
             int mChildHeight = (int) (allHeight * (1 - configManager.mainFlex - configManager.volumeFlex));
-            android.util.Log.d("BaseKLineChartView", "Heights - All: " + allHeight + ", Main: " + mMainHeight + ", Vol: " + mVolHeight + ", Child: " + mChildHeight);
-            android.util.Log.d("BaseKLineChartView", "Flex values - Main: " + configManager.mainFlex + ", Volume: " + configManager.volumeFlex);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Heights - All: " + allHeight + ", Main: " + mMainHeight + ", Vol: " + mVolHeight + ", Child: " + mChildHeight);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Flex values - Main: " + configManager.mainFlex + ", Volume: " + configManager.volumeFlex);
 
             mMainRect = new Rect(0, mTopPadding - textHeight, mWidth, mMainHeight - textHeight);
-            android.util.Log.d("BaseKLineChartView", "mMainRect: " + mMainRect);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "mMainRect: " + mMainRect);
 
             if (configManager.volumeFlex > 0) {
                 mVolRect = new Rect(0, mMainRect.bottom + textHeight + mChildPadding, mWidth, mMainRect.bottom + textHeight + mVolHeight);
                 mChildRect = new Rect(0, mVolRect.bottom + mChildPadding, mWidth, mVolRect.bottom + mChildHeight);
-                android.util.Log.d("BaseKLineChartView", "With volume - mVolRect: " + mVolRect + ", mChildRect: " + mChildRect);
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "With volume - mVolRect: " + mVolRect + ", mChildRect: " + mChildRect);
             } else {
                 mVolRect = new Rect(0, 0, 0, 0); // Empty rect when volumeFlex is 0
                 // When volumeFlex is 0, child section should extend to the bottom of the view
                 mChildRect = new Rect(0, mMainRect.bottom + mChildPadding, mWidth, allHeight);
-                android.util.Log.d("BaseKLineChartView", "Without volume - mVolRect: " + mVolRect + ", mChildRect: " + mChildRect);
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Without volume - mVolRect: " + mVolRect + ", mChildRect: " + mChildRect);
             }
 
             if (!isShowChild) {
-                android.util.Log.d("BaseKLineChartView", "Child not shown, adjusting rects");
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Child not shown, adjusting rects");
                 if (configManager.volumeFlex > 0) {
                     mChildRect.top = mVolRect.bottom;
                     mChildRect.bottom = mVolRect.bottom;
@@ -282,11 +329,11 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
                     mChildRect.top = allHeight;
                     mChildRect.bottom = allHeight;
                 }
-                android.util.Log.d("BaseKLineChartView", "Final mChildRect after adjustment: " + mChildRect);
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Final mChildRect after adjustment: " + mChildRect);
             }
 
             calculateValue();
-            android.util.Log.d("BaseKLineChartView", "initRect() COMPLETED");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "initRect() COMPLETED");
         } catch (Exception e) {
             android.util.Log.e("BaseKLineChartView", "ERROR in initRect()", e);
             throw e;
@@ -295,47 +342,87 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
     @Override
     protected void onDraw(Canvas canvas) {
-        android.util.Log.d("BaseKLineChartView", "onDraw() START");
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "onDraw() START");
         try {
             super.onDraw(canvas);
 //        canvas.drawColor(mBackgroundPaint.getColor());
 
-            android.util.Log.d("BaseKLineChartView", "Checking dimensions: mWidth=" + mWidth + ", mMainRect.height()=" + mMainRect.height());
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Checking dimensions: mWidth=" + mWidth + ", mMainRect.height()=" + mMainRect.height());
             if (mWidth == 0 || mMainRect.height() == 0) {
-                android.util.Log.w("BaseKLineChartView", "Invalid dimensions, skipping draw");
+                if (configManager.debugTrace) android.util.Log.w("BaseKLineChartView", "Invalid dimensions, skipping draw");
                 return;
             }
 
-            android.util.Log.d("BaseKLineChartView", "Calling calculateValue() from onDraw");
-            calculateValue();
+            mRenderStats.beginFrame();
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Calling calculateValue() from onDraw");
+            Trace.beginSection("KLine.calculateValue");
+            try {
+                calculateValue();
+            } finally {
+                Trace.endSection();
+            }
+            mRenderStats.mark(HTKLineRenderStats.CALCULATE_VALUE);
 
-            android.util.Log.d("BaseKLineChartView", "Starting canvas operations");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Starting canvas operations");
             canvas.save();
             canvas.scale(1, 1);
 
-            android.util.Log.d("BaseKLineChartView", "Drawing grid");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Drawing grid");
+            mRenderStats.beginPhase();
             drawGird(canvas);
+            mRenderStats.mark(HTKLineRenderStats.DRAW_GIRD);
 
             if (mItemCount > 0) {
-                android.util.Log.d("BaseKLineChartView", "Drawing chart elements for " + mItemCount + " items");
-                drawK(canvas);
-                drawText(canvas);
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Drawing chart elements for " + mItemCount + " items");
+                mRenderStats.beginPhase();
+                Trace.beginSection("KLine.drawK");
+                try {
+                    drawK(canvas);
+                } finally {
+                    Trace.endSection();
+                }
+                mRenderStats.mark(HTKLineRenderStats.DRAW_K);
+                Trace.beginSection("KLine.drawText");
+                try {
+                    drawText(canvas);
+                } finally {
+                    Trace.endSection();
+                }
+                mRenderStats.mark(HTKLineRenderStats.DRAW_TEXT);
                 drawMaxAndMin(canvas);
-                drawOrderLines(canvas);
+                mRenderStats.mark(HTKLineRenderStats.DRAW_MAX_AND_MIN);
+                Trace.beginSection("KLine.drawOrderLines");
+                try {
+                    drawOrderLines(canvas);
+                } finally {
+                    Trace.endSection();
+                }
+                mRenderStats.mark(HTKLineRenderStats.DRAW_ORDER_LINES);
                 drawValue(canvas, isLongPress ? mSelectedIndex : mStopIndex);
+                mRenderStats.mark(HTKLineRenderStats.DRAW_VALUE);
                 drawClosePriceLine(canvas);
+                mRenderStats.mark(HTKLineRenderStats.DRAW_CLOSE_PRICE_LINE);
                 drawSelector(canvas);
-                android.util.Log.d("BaseKLineChartView", "Chart elements drawn successfully");
+                mRenderStats.mark(HTKLineRenderStats.DRAW_SELECTOR);
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Chart elements drawn successfully");
             } else {
-                android.util.Log.w("BaseKLineChartView", "No items to draw (mItemCount = 0)");
+                if (configManager.debugTrace) android.util.Log.w("BaseKLineChartView", "No items to draw (mItemCount = 0)");
             }
 
             canvas.restore();
-            android.util.Log.d("BaseKLineChartView", "Canvas operations completed");
-
-            android.util.Log.d("BaseKLineChartView", "Drawing context overlay");
-            drawContext.onDraw(canvas);
-            android.util.Log.d("BaseKLineChartView", "onDraw() COMPLETED SUCCESSFULLY");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Canvas operations completed");
+
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Drawing context overlay");
+            mRenderStats.beginPhase();
+            Trace.beginSection("KLine.drawContext");
+            try {
+                drawContext.onDraw(canvas);
+            } finally {
+                Trace.endSection();
+            }
+            mRenderStats.mark(HTKLineRenderStats.DRAW_CONTEXT);
+            mRenderStats.endFrame();
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "onDraw() COMPLETED SUCCESSFULLY");
         } catch (Exception e) {
             android.util.Log.e("BaseKLineChartView", "ERROR in onDraw()", e);
             throw e;
@@ -459,6 +546,7 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         float paddingRight = this.configManager.paddingRight;
         IKLine point = (IKLine) getItem(mItemCount - 1);
         float price = point.getClosePrice();
+        mDrawnClosePrice = price;
         String text = mainDraw.getValueFormatter().format(price);
         float width = calculateWidth(text);
         Paint.FontMetrics fm = mTextPaint.getFontMetrics();
@@ -486,7 +574,7 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
             RectF rect = new RectF(textX - paddingX, y - height / 2 - paddingY, mWidth - marginRight, y + height / 2 + paddingY);
             mClosePriceLabelFrame.set(rect);
-            android.util.Log.d("BaseKLineChartView", "Set closePriceLabelFrame (center): " + rect);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Set closePriceLabelFrame (center): " + rect);
 
             float radius = (paddingY * 2 + height) / 2;
             mClosePricePointPaint.setColor(configManager.closePriceCenterBackgroundColor);
@@ -511,7 +599,7 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
             RectF rightRect = new RectF(mWidth - width, y - height / 2, mWidth, y + height / 2);
             mClosePriceLabelFrame.set(rightRect);
-            android.util.Log.d("BaseKLineChartView", "Set closePriceLabelFrame (right): " + rightRect);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Set closePriceLabelFrame (right): " + rightRect);
 
             canvas.drawRect(rightRect, mClosePricePointPaint);
             canvas.drawText(text, mWidth - width, fixTextY1(y), mClosePriceRightTextPaint);
@@ -540,27 +628,115 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         canvas.translate(-mScrollX * mScaleX, 0);
         canvas.scale(mScaleX, 1);
         mainDraw.drawMinuteMinute(mTopPadding, mStartIndex, getMainBottom(), mStopIndex, canvas, this);
-        for (int i = mStartIndex; i <= mStopIndex; i++) {
-            if (i < 0 || i >= configManager.modelArray.size()) {
-                continue;
+        if (configManager.batchLines) {
+            mLineBatch.begin();
+        }
+        try {
+            if (mLodBucketSize > 1) {
+                drawLodK(canvas);
+            } else {
+                for (int i = mStartIndex; i <= mStopIndex; i++) {
+                    if (i < 0 || i >= configManager.modelArray.size()) {
+                        continue;
+                    }
+                    KLineEntity currentPoint = readItem(i, mDrawCurrent);
+                    float currentPointX = getItemMiddleScrollX(i);
+                    KLineEntity lastPoint = i == 0 ? currentPoint : readItem(i - 1, mDrawLast);
+                    float lastX = i == 0 ? currentPointX : getItemMiddleScrollX(i - 1);
+                    if (mMainDraw != null) {
+                        mMainDraw.drawTranslated(lastPoint, currentPoint, lastX, currentPointX, canvas, this, i);
+                    }
+                    if (mVolDraw != null && configManager.volumeFlex > 0) {
+                        mVolDraw.drawTranslated(lastPoint, currentPoint, lastX, currentPointX, canvas, this, i);
+                    }
+                    if (mChildDraw != null) {
+                        mChildDraw.drawTranslated(lastPoint, currentPoint, lastX, currentPointX, canvas, this, i);
+                    }
+                }
+            }
+        } finally {
+            //折线画在蜡烛和柱子上面, 每条一次 drawLines
+            if (mLineBatch.isActive()) {
+                mLineBatch.flush(canvas);
             }
-            Object currentPoint = getItem(i);
-            float currentPointX = getItemMiddleScrollX(i);
-            Object lastPoint = i == 0 ? currentPoint : getItem(i - 1);
-            float lastX = i == 0 ? currentPointX : getItemMiddleScrollX(i - 1);
+        }
+
+        //还原 平移缩放
+        canvas.restore();
+    }
+
+    /**
+     * 按桶画k线图
+     * One candle, volume bar and MACD bar per bucket, lines connect the buckets at their last
+     * values, then each line is drawn from its min to its max inside the bucket.
+     */
+    private void drawLodK(Canvas canvas) {
+        KLineLodIndex lod = mLodIndex;
+        int first = lod.bucketOf(Math.max(0, mStartIndex));
+        int last = Math.min(lod.bucketOf(mStopIndex), lod.getBucketCount() - 1);
+        KLineEntity lastPoint = mLodLast;
+        KLineEntity currentPoint = mLodCurrent;
+        float lastX = 0;
+        if (first > 0) {
+            lod.readBar(first - 1, lastPoint);
+            lastX = getBucketMiddleScrollX(first - 1);
+        }
+        for (int bucket = first; bucket <= last; bucket++) {
+            lod.readBar(bucket, currentPoint);
+            float currentX = getBucketMiddleScrollX(bucket);
+            KLineEntity previous = bucket > 0 ? lastPoint : currentPoint;
+            float previousX = bucket > 0 ? lastX : currentX;
+            int position = lod.getLastIndex(bucket);
             if (mMainDraw != null) {
-                mMainDraw.drawTranslated(lastPoint, currentPoint, lastX, currentPointX, canvas, this, i);
+                mMainDraw.drawTranslated(previous, currentPoint, previousX, currentX, canvas, this, position);
             }
             if (mVolDraw != null && configManager.volumeFlex > 0) {
-                mVolDraw.drawTranslated(lastPoint, currentPoint, lastX, currentPointX, canvas, this, i);
+                mVolDraw.drawTranslated(previous, currentPoint, previousX, currentX, canvas, this, position);
             }
             if (mChildDraw != null) {
-                mChildDraw.drawTranslated(lastPoint, currentPoint, lastX, currentPointX, canvas, this, i);
+                mChildDraw.drawTranslated(previous, currentPoint, previousX, currentX, canvas, this, position);
             }
+
+            lod.readMin(bucket, mLodMin);
+            lod.readMax(bucket, mLodMax);
+            mDrawingLodEnvelope = true;
+            try {
+                if (mMainDraw != null) {
+                    mMainDraw.drawTranslated(mLodMin, mLodMax, currentX, currentX, canvas, this, position);
+                }
+                if (mVolDraw != null && configManager.volumeFlex > 0) {
+                    mVolDraw.drawTranslated(mLodMin, mLodMax, currentX, currentX, canvas, this, position);
+                }
+                if (mChildDraw != null) {
+                    mChildDraw.drawTranslated(mLodMin, mLodMax, currentX, currentX, canvas, this, position);
+                }
+            } finally {
+                mDrawingLodEnvelope = false;
+            }
+
+            KLineEntity swap = lastPoint;
+            lastPoint = currentPoint;
+            currentPoint = swap;
+            lastX = currentX;
         }
+    }
 
-        //还原 平移缩放
-        canvas.restore();
+    private float getBucketMiddleScrollX(int bucket) {
+        return (getItemMiddleScrollX(mLodIndex.getFirstIndex(bucket)) + getItemMiddleScrollX(mLodIndex.getLastIndex(bucket))) / 2;
+    }
+
+    /**
+     * 按桶绘制时每个桶的 K 线数, 蜡烛和柱子按它放宽, 逐根绘制时为 1
+     */
+    public int getLodBucketSize() {
+        return mLodBucketSize;
+    }
+
+    /**
+     * 正在画桶内指标的范围, 为 true 时只画线
+     */
+    public boolean isDrawingLodEnvelope() {
+        return mDrawingLodEnvelope;
     }
 
     /**
@@ -635,6 +811,15 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         float columnSpace = mWidth / mGridColumns;
         float y = fixTextY1((float) (mChildRect.bottom + mBottomPadding / 2.0));
 
+        if (mItemCount > 0) {
+            // Room for the newest label and half of it again between two labels
+            float minSpacing = mAxisLabels.measure(getItemDate(mItemCount - 1), mTextPaint) * 1.5f;
+            if (mAxisLabels.update(configManager.modelArray, mPointWidth * mScaleX, minSpacing)) {
+                drawTimeTicks(canvas, y);
+                return;
+            }
+        }
+
         float startX = getItemMiddleScrollX(mStartIndex) - mPointWidth / 2;
         float stopX = getItemMiddleScrollX(mStopIndex) + mPointWidth / 2;
 
@@ -642,7 +827,7 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
             float scrollX = viewXToScrollX(columnSpace * i);
             if (scrollX >= startX && scrollX <= stopX) {
                 int index = indexFromScrollX(scrollX);
-                String text = getItem(index).Date;
+                String text = getItemDate(index);
                 canvas.drawText(text, columnSpace * i - mTextPaint.measureText(text) / 2, y, mTextPaint);
             }
         }
@@ -653,17 +838,42 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
         float scrollX = viewXToScrollX(0);
         if (scrollX >= startX && scrollX <= stopX) {
-            String text = getItem(mStartIndex).Date;
+            String text = getItemDate(mStartIndex);
             canvas.drawText(text, -mTextPaint.measureText(text) / 2, y, mTextPaint);
         }
         scrollX = viewXToScrollX(mWidth);
         if (scrollX >= startX && scrollX <= stopX) {
-            String text = getItem(mStopIndex).Date;
+            String text = getItemDate(mStopIndex);
             canvas.drawText(text, mWidth - mTextPaint.measureText(text) / 2, y, mTextPaint);
         }
 
     }
 
+    /**
+     * 在时间边界处画时间, 刻度和文字宽度来自 mAxisLabels
+     */
+    private void drawTimeTicks(Canvas canvas, float y) {
+        float lastRight = -Float.MAX_VALUE;
+        for (int tick = mAxisLabels.firstTickFrom(mStartIndex); tick < mAxisLabels.getTickCount(); tick++) {
+            int index = mAxisLabels.getTick(tick);
+            if (index > mStopIndex) {
+                break;
+            }
+            String text = mAxisLabels.getLabel(tick);
+            if (text == null) {
+                text = getItemDate(index);
+                mAxisLabels.setLabel(tick, text);
+            }
+            float width = mAxisLabels.measure(text, mTextPaint);
+            float x = scrollXtoViewX(getItemMiddleScrollX(index)) - width / 2;
+            if (x < lastRight || x < 0 || x + width > mWidth) {
+                continue;
+            }
+            canvas.drawText(text, x, y, mTextPaint);
+            lastRight = x + width;
+        }
+    }
+
     private void drawSelector(Canvas canvas) {
         if (!isLongPress) {
             return;
@@ -759,7 +969,7 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
 
         // 画X值
-        String date = getItem(mSelectedIndex).Date;
+        String date = getItemDate(mSelectedIndex);
         textWidth = mMaxMinPaint.measureText(date);
         r = textHeight / 2;
         x = scrollXtoViewX(getItemMiddleScrollX(mSelectedIndex));
@@ -843,220 +1053,31 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         // Get parent container view to access order lines
         if (getParent() instanceof HTKLineContainerView) {
             HTKLineContainerView containerView = (HTKLineContainerView) getParent();
-            java.util.Map<String, java.util.Map<String, Object>> orderLines = containerView.getAllOrderLines();
-
-            for (java.util.Map.Entry<String, java.util.Map<String, Object>> entry : orderLines.entrySet()) {
-                java.util.Map<String, Object> orderLineData = entry.getValue();
-
-                if (orderLineData.containsKey("price") && orderLineData.containsKey("type")) {
-                    double price = 0;
-                    Object priceObj = orderLineData.get("price");
-                    if (priceObj instanceof Number) {
-                        price = ((Number) priceObj).doubleValue();
-                    }
-
-                    String type = (String) orderLineData.get("type");
-
-                    // Convert price to Y coordinate
-                    float y = yFromValue((float) price);
-
-                    // Only draw if the price is within the visible main chart area
-                    if (y >= mMainRect.top && y <= mMainRect.bottom) {
-                        // Create a paint for drawing order lines
-                        Paint orderLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-                        orderLinePaint.setStyle(Paint.Style.STROKE);
-                        orderLinePaint.setStrokeWidth(2.0f);
-
-                        // Use color property if available, otherwise default to orange
-                        int lineColor = Color.parseColor("#FF9500"); // Default orange color
-                        if (orderLineData.containsKey("color")) {
-                            String colorString = (String) orderLineData.get("color");
-                            if (colorString != null) {
-                                try {
-                                    // Handle RGBA format (convert to ARGB for Android)
-                                    if (colorString.length() == 9 && colorString.startsWith("#")) {
-                                        // Convert #RRGGBBAA to #AARRGGBB
-                                        String rgba = colorString.substring(1);
-                                        String argb = "#" + rgba.substring(6) + rgba.substring(0, 6);
-                                        lineColor = Color.parseColor(argb);
-                                    } else {
-                                        lineColor = Color.parseColor(colorString);
-                                    }
-                                } catch (IllegalArgumentException e) {
-                                    // If parsing fails, use default orange color
-                                    lineColor = Color.parseColor("#FF9500");
-                                }
-                            }
-                        }
-                        orderLinePaint.setColor(lineColor);
-
-                        // Create dashed line effect
-                        float[] dashIntervals = {15.0f, 10.0f}; // dash length, gap length
-                        orderLinePaint.setPathEffect(new DashPathEffect(dashIntervals, 0));
-
-                        // Calculate line start position (after label if it exists)
-                        float lineStartX = 0;
-
-                        // Draw label if available and calculate where line should start
-                        if (orderLineData.containsKey("label")) {
-                            String label = (String) orderLineData.get("label");
-                            if (label != null && !label.isEmpty()) {
-                                // Get font size or use default
-                                float fontSize = 12.0f;
-                                if (orderLineData.containsKey("labelFontSize")) {
-                                    Object fontSizeObj = orderLineData.get("labelFontSize");
-                                    if (fontSizeObj instanceof Number) {
-                                        fontSize = ((Number) fontSizeObj).floatValue();
-                                    }
-                                }
-
-                                // Get label color (defaults to line color)
-                                int labelColor = lineColor;
-                                if (orderLineData.containsKey("labelColor")) {
-                                    String labelColorString = (String) orderLineData.get("labelColor");
-                                    if (labelColorString != null) {
-                                        try {
-                                            if (labelColorString.length() == 9 && labelColorString.startsWith("#")) {
-                                                String rgba = labelColorString.substring(1);
-                                                String argb = "#" + rgba.substring(6) + rgba.substring(0, 6);
-                                                labelColor = Color.parseColor(argb);
-                                            } else {
-                                                labelColor = Color.parseColor(labelColorString);
-                                            }
-                                        } catch (IllegalArgumentException e) {
-                                            labelColor = lineColor;
-                                        }
-                                    }
-                                }
-
-                                // Create paint for label text
-                                Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-                                labelPaint.setColor(labelColor);
-                                labelPaint.setTextSize(fontSize * getResources().getDisplayMetrics().scaledDensity);
-                                labelPaint.setTypeface(configManager.font);
-
-                                // Calculate label text bounds
-                                Rect labelBounds = new Rect();
-                                labelPaint.getTextBounds(label, 0, label.length(), labelBounds);
-
-                                // Calculate description text bounds if available
-                                String description = null;
-                                Rect descriptionBounds = new Rect();
-                                Paint descriptionPaint = null;
-                                int descriptionColor = labelColor;
-                                float spacing = 0;
-
-                                if (orderLineData.containsKey("labelDescription")) {
-                                    description = (String) orderLineData.get("labelDescription");
-                                    if (description != null && !description.isEmpty()) {
-                                        spacing = 4 * getResources().getDisplayMetrics().density;
-
-                                        // Get description color (defaults to label color)
-                                        if (orderLineData.containsKey("labelDescriptionColor")) {
-                                            String descriptionColorString = (String) orderLineData.get("labelDescriptionColor");
-                                            if (descriptionColorString != null) {
-                                                try {
-                                                    if (descriptionColorString.length() == 9 && descriptionColorString.startsWith("#")) {
-                                                        String rgba = descriptionColorString.substring(1);
-                                                        String argb = "#" + rgba.substring(6) + rgba.substring(0, 6);
-                                                        descriptionColor = Color.parseColor(argb);
-                                                    } else {
-                                                        descriptionColor = Color.parseColor(descriptionColorString);
-                                                    }
-                                                } catch (IllegalArgumentException e) {
-                                                    descriptionColor = labelColor;
-                                                }
-                                            }
-                                        }
-
-                                        descriptionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-                                        descriptionPaint.setColor(descriptionColor);
-                                        descriptionPaint.setTextSize(fontSize * getResources().getDisplayMetrics().scaledDensity);
-                                        descriptionPaint.setTypeface(configManager.font);
-                                        descriptionPaint.getTextBounds(description, 0, description.length(), descriptionBounds);
-                                    }
-                                }
-
-                                // Calculate total width (label + space + description)
-                                float totalTextWidth = labelBounds.width() + spacing + (description != null ? descriptionBounds.width() : 0);
-                                float textHeight = Math.max(labelBounds.height(), description != null ? descriptionBounds.height() : 0);
-
-                                // Pill container dimensions (match close price pill)
-                                float density = getResources().getDisplayMetrics().density;
-                                float horizontalPadding = 20;
-                                float verticalPadding = 14;
-                                float outerPadding = 8 * density;
-
-                                float pillWidth = totalTextWidth + horizontalPadding * 2;
-                                float pillHeight = textHeight + verticalPadding * 2;
-
-                                float labelX = outerPadding;
-                                float labelY = y - pillHeight / 2;
-
-                                // Only draw if there's enough space (left third of screen)
-                                if (labelX + pillWidth + outerPadding < getWidth() / 3) {
-                                    // Create pill background paint
-                                    Paint pillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-
-                                    // Get background color or use default (transparent)
-                                    int backgroundColor = Color.TRANSPARENT;
-                                    if (orderLineData.containsKey("labelBackgroundColor")) {
-                                        String backgroundColorString = (String) orderLineData.get("labelBackgroundColor");
-                                        if (backgroundColorString != null) {
-                                            try {
-                                                // Handle RGBA format (convert to ARGB for Android)
-                                                if (backgroundColorString.length() == 9 && backgroundColorString.startsWith("#")) {
-                                                    // Convert #RRGGBBAA to #AARRGGBB
-                                                    String rgba = backgroundColorString.substring(1);
-                                                    String argb = "#" + rgba.substring(6) + rgba.substring(0, 6);
-                                                    backgroundColor = Color.parseColor(argb);
-                                                } else {
-                                                    backgroundColor = Color.parseColor(backgroundColorString);
-                                                }
-                                            } catch (IllegalArgumentException e) {
-                                                backgroundColor = Color.TRANSPARENT;
-                                            }
-                                        }
-                                    }
-
-                                    // Draw pill background
-                                    RectF pillRect = new RectF(labelX, labelY, labelX + pillWidth, labelY + pillHeight);
-                                    // Use same radius calculation as close price pill
-                                    float radius = (verticalPadding * 2 + textHeight) / 2;
-                                    pillPaint.setColor(backgroundColor);
-                                    pillPaint.setStyle(Paint.Style.FILL);
-                                    canvas.drawRoundRect(pillRect, radius, radius, pillPaint);
-
-                                    // Draw pill border with same color as text
-                                    pillPaint.setColor(lineColor);
-                                    pillPaint.setStyle(Paint.Style.STROKE);
-                                    pillPaint.setStrokeWidth(1 * density);
-                                    canvas.drawRoundRect(pillRect, radius, radius, pillPaint);
-
-                                    // Draw label and description separately with their respective colors
-                                    float textX = labelX + horizontalPadding;
-                                    float textY = y + textHeight / 2;
-
-                                    // Draw label text
-                                    canvas.drawText(label, textX, textY, labelPaint);
-
-                                    // Draw description text if available
-                                    if (description != null && descriptionPaint != null) {
-                                        float descriptionX = textX + labelBounds.width() + spacing;
-                                        canvas.drawText(description, descriptionX, textY, descriptionPaint);
-                                    }
-
-                                    // Set line to start after pill with additional padding
-                                    lineStartX = labelX + pillWidth + outerPadding;
-                                }
-                            }
-                        }
-
-                        // Draw horizontal line starting after the label (or from 0 if no label)
-                        // Stop before the Y-axis scale area (paddingRight)
-                        float lineEndX = getWidth() - configManager.paddingRight;
-                        canvas.drawLine(lineStartX, y, lineEndX, y, orderLinePaint);
-                    }
+            HTOrderLineSet.Snapshot snapshot = containerView.getOrderLineSnapshot();
+            HTOrderLine[] lines = snapshot.byPrice;
+            if (lines.length == 0) {
+                return;
+            }
+            // Price range of the main chart, one pixel wider so lines on the edge are kept
+            float lowPrice = valueFromY(mMainRect.bottom + 1);
+            float highPrice = valueFromY(mMainRect.top - 1);
+            if (lowPrice > highPrice) {
+                float price = lowPrice;
+                lowPrice = highPrice;
+                highPrice = price;
+            }
+            DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
+            // Stop before the Y-axis scale area (paddingRight)
+            float lineEndX = getWidth() - configManager.paddingRight;
+
+            for (int i = snapshot.lowerBound(lowPrice); i < lines.length && lines[i].price <= highPrice; i++) {
+                HTOrderLine line = lines[i];
+                // Convert price to Y coordinate
+                float y = yFromValue(line.price);
+
+                // Only draw if the price is within the visible main chart area
+                if (y >= mMainRect.top && y <= mMainRect.bottom) {
+                    line.getRender(configManager.font, displayMetrics).draw(canvas, y, getWidth(), lineEndX);
                 }
             }
         }
@@ -1082,55 +1103,95 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         return getValueFormatter().format(value);
     }
 
+    /**
+     * 图例版本号
+     * Changes whenever bars, indicator values or config may have changed, legend text cached
+     * for an older generation must be rebuilt.
+     */
+    public int getLegendGeneration() {
+        return mLegendGeneration;
+    }
+
     /**
      * 重新计算并刷新线条
      */
     public void notifyChanged() {
-        android.util.Log.d("BaseKLineChartView", "notifyChanged() START");
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "notifyChanged() START");
         try {
-            android.util.Log.d("BaseKLineChartView", "Setting mItemCount from configManager.modelArray.size(): " + configManager.modelArray.size());
+            mLegendGeneration++;
+            mLodIndex.invalidate();
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Setting mItemCount from configManager.modelArray.size(): " + configManager.modelArray.size());
             mItemCount = configManager.modelArray.size();
             mDataLen = mItemCount * mPointWidth;
-            android.util.Log.d("BaseKLineChartView", "mItemCount: " + mItemCount + ", mDataLen: " + mDataLen + ", mPointWidth: " + mPointWidth);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "mItemCount: " + mItemCount + ", mDataLen: " + mDataLen + ", mPointWidth: " + mPointWidth);
 
             if (isShowChild && mChildDrawPosition == -1) {
-                android.util.Log.d("BaseKLineChartView", "Setting up child draw");
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Setting up child draw");
                 mChildDraw = mChildDraws.get(0);
                 mChildDrawPosition = 0;
             }
 
             if (mItemCount != 0) {
-                android.util.Log.d("BaseKLineChartView", "Recalculating mDataLen and checking scroll");
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Recalculating mDataLen and checking scroll");
                 mDataLen = mItemCount * mPointWidth;
-                android.util.Log.d("BaseKLineChartView", "Calling checkAndFixScrollX()");
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Calling checkAndFixScrollX()");
                 checkAndFixScrollX();
-                android.util.Log.d("BaseKLineChartView", "checkAndFixScrollX() completed");
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "checkAndFixScrollX() completed");
             }
 
             if (mSelectedIndex >= mItemCount) {
-                android.util.Log.d("BaseKLineChartView", "Resetting long press: mSelectedIndex(" + mSelectedIndex + ") >= mItemCount(" + mItemCount + ")");
+                if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Resetting long press: mSelectedIndex(" + mSelectedIndex + ") >= mItemCount(" + mItemCount + ")");
                 isLongPress = false;
             }
 
-            android.util.Log.d("BaseKLineChartView", "Calling initRect()");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Calling initRect()");
             initRect();
-            android.util.Log.d("BaseKLineChartView", "initRect() completed");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "initRect() completed");
 
-            android.util.Log.d("BaseKLineChartView", "Calling initLottieView()");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Calling initLottieView()");
             initLottieView();
-            android.util.Log.d("BaseKLineChartView", "initLottieView() completed");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "initLottieView() completed");
 
-            android.util.Log.d("BaseKLineChartView", "Calling invalidate()");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Calling invalidate()");
             invalidate();
-            android.util.Log.d("BaseKLineChartView", "invalidate() completed");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "invalidate() completed");
 
-            android.util.Log.d("BaseKLineChartView", "notifyChanged() COMPLETED SUCCESSFULLY");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "notifyChanged() COMPLETED SUCCESSFULLY");
         } catch (Exception e) {
             android.util.Log.e("BaseKLineChartView", "ERROR in notifyChanged()", e);
             throw e;
         }
     }
 
+    /**
+     * 只有尾部数据变化, 最后一根被更新或在末尾追加了新的
+     * Skips initRect and initLottieView, the extrema index refreshes only the changed bars on the
+     * next calculateValue. Nothing is redrawn when the changed bars are right of the visible range
+     * and the close price shown on the right did not move.
+     *
+     * @param fromIndex first changed bar
+     */
+    public void notifyTailChanged(int fromIndex) {
+        int itemCount = configManager.modelArray.size();
+        if (mItemCount == 0 || itemCount < mItemCount) {
+            notifyChanged();
+            return;
+        }
+        mLegendGeneration++;
+        mLodIndex.markChanged(configManager.modelArray, fromIndex);
+        if (itemCount != mItemCount) {
+            mItemCount = itemCount;
+            mDataLen = mItemCount * mPointWidth;
+            checkAndFixScrollX();
+        }
+        if (fromIndex > mStopIndex
+                && ((IKLine) getItem(mItemCount - 1)).getClosePrice() == mDrawnClosePrice) {
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "notifyTailChanged() - bars from " + fromIndex + " are off-screen, skip invalidate");
+            return;
+        }
+        invalidate();
+    }
+
     /**
      * MA/BOLL切换及隐藏
      *
@@ -1166,13 +1227,13 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
-        android.util.Log.d("BaseKLineChartView", "onScrollChanged() - l=" + l + ", t=" + t + ", oldl=" + oldl + ", oldt=" + oldt);
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "onScrollChanged() - l=" + l + ", t=" + t + ", oldl=" + oldl + ", oldt=" + oldt);
         super.onScrollChanged(l, t, oldl, oldt);
     }
 
     @Override
     protected void onScaleChanged(float scale, float oldScale) {
-        android.util.Log.d("BaseKLineChartView", "onScaleChanged() - scale=" + scale + ", oldScale=" + oldScale);
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "onScaleChanged() - scale=" + scale + ", oldScale=" + oldScale);
         checkAndFixScrollX();
         super.onScaleChanged(scale, oldScale);
     }
@@ -1196,14 +1257,14 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
      * 计算当前的显示区域
      */
     private void calculateValue() {
-        android.util.Log.d("BaseKLineChartView", "calculateValue() START");
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "calculateValue() START");
         try {
-            android.util.Log.d("BaseKLineChartView", "isLongPress: " + isLongPress() + ", mSelectedIndex: " + mSelectedIndex);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "isLongPress: " + isLongPress() + ", mSelectedIndex: " + mSelectedIndex);
             if (!isLongPress()) {
                 mSelectedIndex = -1;
             }
 
-            android.util.Log.d("BaseKLineChartView", "Resetting min/max values");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Resetting min/max values");
             mMainMaxValue = Float.MIN_VALUE;
             mMainMinValue = Float.MAX_VALUE;
             mVolMaxValue = Float.MIN_VALUE;
@@ -1211,52 +1272,30 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
             mChildMaxValue = Float.MIN_VALUE;
             mChildMinValue = Float.MAX_VALUE;
 
-            android.util.Log.d("BaseKLineChartView", "Calculating visible range: mWidth=" + mWidth + ", mItemCount=" + mItemCount);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Calculating visible range: mWidth=" + mWidth + ", mItemCount=" + mItemCount);
             mStartIndex = Math.min(Math.max(0, indexFromScrollX(viewXToScrollX(0))), mItemCount - 1);
             mStopIndex = Math.max(0, Math.min(indexFromScrollX(viewXToScrollX(mWidth)), mItemCount - 1));
-            android.util.Log.d("BaseKLineChartView", "Visible range: mStartIndex=" + mStartIndex + ", mStopIndex=" + mStopIndex);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Visible range: mStartIndex=" + mStartIndex + ", mStopIndex=" + mStopIndex);
             mMainMaxIndex = mStartIndex;
             mMainMinIndex = mStartIndex;
             mMainHighMaxValue = Float.MIN_VALUE;
             mMainLowMinValue = Float.MAX_VALUE;
 
-            android.util.Log.d("BaseKLineChartView", "Starting data loop for range " + mStartIndex + " to " + mStopIndex);
-            for (int i = mStartIndex; i <= mStopIndex; i++) {
-                if (i < 0 || i >= configManager.modelArray.size()) {
-                    android.util.Log.w("BaseKLineChartView", "Skipping invalid index: " + i + " (size: " + configManager.modelArray.size() + ")");
-                    continue;
-                }
-                IKLine point = (IKLine) getItem(i);
-                if (point == null) {
-                    android.util.Log.w("BaseKLineChartView", "getItem(" + i + ") returned null");
-                    continue;
-                }
-            if (mMainDraw != null) {
-                mMainMaxValue = Math.max(mMainMaxValue, mMainDraw.getMaxValue(point));
-                mMainMinValue = Math.min(mMainMinValue, mMainDraw.getMinValue(point));
-                if (mMainHighMaxValue != Math.max(mMainHighMaxValue, point.getHighPrice())) {
-                    mMainHighMaxValue = point.getHighPrice();
-                    mMainMaxIndex = i;
-                }
-                if (mMainLowMinValue != Math.min(mMainLowMinValue, point.getLowPrice())) {
-                    mMainLowMinValue = point.getLowPrice();
-                    mMainMinIndex = i;
-                }
-            }
-            if (mVolDraw != null && configManager.volumeFlex > 0) {
-                mVolMaxValue = Math.max(mVolMaxValue, mVolDraw.getMaxValue(point));
-                mVolMinValue = Math.min(mVolMinValue, mVolDraw.getMinValue(point));
-                // 成交量最小应该是 0 或者比最小成交量大一点点
-                mVolMinValue = mVolMinValue - (mVolMaxValue - mVolMinValue) / 10.0f;
-                mVolMinValue = Math.max(0, mVolMinValue);
+            if (configManager.modelArray instanceof KLineColumnStore) {
+                calculateValueFromIndex((KLineColumnStore) configManager.modelArray);
+            } else {
+                calculateValueFromList();
             }
-            if (mChildDraw != null) {
-                mChildMaxValue = Math.max(mChildMaxValue, mChildDraw.getMaxValue(point));
-                mChildMinValue = Math.min(mChildMinValue, mChildDraw.getMinValue(point));
+            mLodBucketSize = 1;
+            if (configManager.levelOfDetail && !isMinute && mItemCount > 0) {
+                mLodBucketSize = KLineLodIndex.chooseBucketSize(1 / (mPointWidth * mScaleX));
+                if (mLodBucketSize > 1) {
+                    mLodIndex.sync(configManager.modelArray, mLodBucketSize);
+                    calculateLodVolumeRange();
+                }
             }
-        }
-        android.util.Log.d("BaseKLineChartView", "Data loop completed. Final values - MainMax: " + mMainMaxValue + ", MainMin: " + mMainMinValue + ", VolMax: " + mVolMaxValue + ", VolMin: " + mVolMinValue);
-        android.util.Log.d("BaseKLineChartView", "calculateValue() COMPLETED");
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Data loop completed. Final values - MainMax: " + mMainMaxValue + ", MainMin: " + mMainMinValue + ", VolMax: " + mVolMaxValue + ", VolMin: " + mVolMinValue);
+            if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "calculateValue() COMPLETED");
         } catch (Exception e) {
             android.util.Log.e("BaseKLineChartView", "ERROR in calculateValue()", e);
             throw e;
@@ -1298,7 +1337,7 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
 //        if (Math.abs(mChildMaxValue) < 0.01 && Math.abs(mChildMinValue) < 0.01) {
 //            mChildMaxValue = 1f;
 //        } else
-            if (mChildMaxValue.equals(mChildMinValue)) {
+            if (Float.compare(mChildMaxValue, mChildMinValue) == 0) {
             //当最大值和最小值都相等的时候 分别增大最大值和 减小最小值
             mChildMaxValue += Math.abs(mChildMaxValue * 0.05f);
             mChildMinValue -= Math.abs(mChildMinValue * 0.05f);
@@ -1326,6 +1365,120 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         }
     }
 
+    /**
+     * 逐点遍历计算可见区域的最大值/最小值
+     */
+    private void calculateValueFromList() {
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Starting data loop for range " + mStartIndex + " to " + mStopIndex);
+        for (int i = mStartIndex; i <= mStopIndex; i++) {
+            if (i < 0 || i >= configManager.modelArray.size()) {
+                if (configManager.debugTrace) android.util.Log.w("BaseKLineChartView", "Skipping invalid index: " + i + " (size: " + configManager.modelArray.size() + ")");
+                continue;
+            }
+            IKLine point = (IKLine) getItem(i);
+            if (point == null) {
+                if (configManager.debugTrace) android.util.Log.w("BaseKLineChartView", "getItem(" + i + ") returned null");
+                continue;
+            }
+            if (mMainDraw != null) {
+                mRange[IChartDraw.RANGE_MAX] = mMainMaxValue;
+                mRange[IChartDraw.RANGE_MIN] = mMainMinValue;
+                mMainDraw.extendRange(point, mRange);
+                mMainMaxValue = mRange[IChartDraw.RANGE_MAX];
+                mMainMinValue = mRange[IChartDraw.RANGE_MIN];
+                if (mMainHighMaxValue != Math.max(mMainHighMaxValue, point.getHighPrice())) {
+                    mMainHighMaxValue = point.getHighPrice();
+                    mMainMaxIndex = i;
+                }
+                if (mMainLowMinValue != Math.min(mMainLowMinValue, point.getLowPrice())) {
+                    mMainLowMinValue = point.getLowPrice();
+                    mMainMinIndex = i;
+                }
+            }
+            if (mVolDraw != null && configManager.volumeFlex > 0) {
+                mRange[IChartDraw.RANGE_MAX] = mVolMaxValue;
+                mRange[IChartDraw.RANGE_MIN] = mVolMinValue;
+                mVolDraw.extendRange(point, mRange);
+                mVolMaxValue = mRange[IChartDraw.RANGE_MAX];
+                mVolMinValue = mRange[IChartDraw.RANGE_MIN];
+                // 成交量最小应该是 0 或者比最小成交量大一点点
+                mVolMinValue = mVolMinValue - (mVolMaxValue - mVolMinValue) / 10.0f;
+                mVolMinValue = Math.max(0, mVolMinValue);
+            }
+            if (mChildDraw != null) {
+                mRange[IChartDraw.RANGE_MAX] = mChildMaxValue;
+                mRange[IChartDraw.RANGE_MIN] = mChildMinValue;
+                mChildDraw.extendRange(point, mRange);
+                mChildMaxValue = mRange[IChartDraw.RANGE_MAX];
+                mChildMinValue = mRange[IChartDraw.RANGE_MIN];
+            }
+        }
+    }
+
+    /**
+     * 用区间索引计算可见区域的最大值/最小值, 除成交量下限外与逐点遍历的结果一致
+     */
+    private void calculateValueFromIndex(KLineColumnStore store) {
+        KLineExtremaIndex index = mExtremaIndex;
+        index.sync(store);
+        int start = Math.max(0, mStartIndex);
+        int stop = Math.min(mStopIndex, store.size() - 1);
+        if (start > stop) {
+            return;
+        }
+        if (mMainDraw != null) {
+            index.query(KLineExtremaIndex.MAIN, mMainDraw, mainDraw != null ? mainDraw.getPrimaryStatus() : null, start, stop);
+            mMainMaxValue = Math.max(mMainMaxValue, index.getMax());
+            mMainMinValue = Math.min(mMainMinValue, index.getMin());
+            index.query(KLineExtremaIndex.HIGH_LOW, null, null, start, stop);
+            if (mMainHighMaxValue != Math.max(mMainHighMaxValue, index.getMax())) {
+                mMainHighMaxValue = index.getMax();
+                mMainMaxIndex = index.getMaxIndex();
+            }
+            if (mMainLowMinValue != Math.min(mMainLowMinValue, index.getMin())) {
+                mMainLowMinValue = index.getMin();
+                mMainMinIndex = index.getMinIndex();
+            }
+        }
+        if (mVolDraw != null && configManager.volumeFlex > 0) {
+            index.query(KLineExtremaIndex.VOLUME, mVolDraw, null, start, stop);
+            mVolMaxValue = Math.max(mVolMaxValue, index.getMax());
+            mVolMinValue = Math.min(mVolMinValue, index.getMin());
+            // 逐点遍历时每个点都把最小值再往下压 1/10 的区间, 这里按可见点数一次算出, 最小为 0
+            double spread = (mVolMaxValue - mVolMinValue) * Math.pow(1.1, stop - start + 1);
+            mVolMinValue = Math.max(0, (float) (mVolMaxValue - spread));
+        }
+        if (mChildDraw != null) {
+            index.query(KLineExtremaIndex.CHILD, mChildDraw, null, start, stop);
+            mChildMaxValue = Math.max(mChildMaxValue, index.getMax());
+            mChildMinValue = Math.min(mChildMinValue, index.getMin());
+        }
+    }
+
+    /**
+     * 按桶绘制时成交量是桶内之和, 范围按可见的桶重新计算
+     */
+    private void calculateLodVolumeRange() {
+        if (mVolDraw == null || configManager.volumeFlex <= 0) {
+            return;
+        }
+        int first = mLodIndex.bucketOf(Math.max(0, mStartIndex));
+        int last = Math.min(mLodIndex.bucketOf(mStopIndex), mLodIndex.getBucketCount() - 1);
+        mVolMaxValue = Float.MIN_VALUE;
+        mVolMinValue = Float.MAX_VALUE;
+        for (int bucket = first; bucket <= last; bucket++) {
+            mRange[IChartDraw.RANGE_MAX] = mVolMaxValue;
+            mRange[IChartDraw.RANGE_MIN] = mVolMinValue;
+            mVolDraw.extendRange(mLodIndex.readMin(bucket, mLodMin), mRange);
+            mVolDraw.extendRange(mLodIndex.readMax(bucket, mLodMax), mRange);
+            mVolMaxValue = mRange[IChartDraw.RANGE_MAX];
+            mVolMinValue = mRange[IChartDraw.RANGE_MIN];
+        }
+        // 同 calculateValueFromIndex, 按桶数压低最小值, 最小为 0
+        double spread = (mVolMaxValue - mVolMinValue) * Math.pow(1.1, last - first + 1);
+        mVolMinValue = Math.max(0, (float) (mVolMaxValue - spread));
+    }
+
     @Override
     public int getMinScrollX() {
 //        return (int) -(mOverScrollRange / mScaleX);
@@ -1346,6 +1499,10 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
      * @param stopValue 结束点的值
      */
     public void drawMainLine(Canvas canvas, Paint paint, float startX, float startValue, float stopX, float stopValue) {
+        if (mLineBatch.isActive()) {
+            mLineBatch.add(paint, startX, yFromValue(startValue), stopX, yFromValue(stopValue));
+            return;
+        }
         canvas.drawLine(startX, yFromValue(startValue), stopX, yFromValue(stopValue), paint);
     }
 
@@ -1358,6 +1515,10 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
      * @param stopValue  结束点的值
      */
     public void drawChildLine(Canvas canvas, Paint paint, float startX, float startValue, float stopX, float stopValue) {
+        if (mLineBatch.isActive()) {
+            mLineBatch.add(paint, startX, getChildY(startValue), stopX, getChildY(stopValue));
+            return;
+        }
         canvas.drawLine(startX, getChildY(startValue), stopX, getChildY(stopValue), paint);
     }
 
@@ -1370,9 +1531,27 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
      * @param stopValue  结束点的值
      */
     public void drawVolLine(Canvas canvas, Paint paint, float startX, float startValue, float stopX, float stopValue) {
+        if (mLineBatch.isActive()) {
+            mLineBatch.add(paint, startX, getVolY(startValue), stopX, getVolY(stopValue));
+            return;
+        }
         canvas.drawLine(startX, getVolY(startValue), stopX, getVolY(stopValue), paint);
     }
 
+    /**
+     * onDraw 各阶段耗时统计
+     */
+    public HTKLineRenderStats getRenderStats() {
+        return mRenderStats;
+    }
+
+    /**
+     * 上一帧 drawK 的折线批量统计
+     */
+    public HTKLineLineBatch getLineBatch() {
+        return mLineBatch;
+    }
+
     /**
      * 根据索引获取实体
      *
@@ -1382,12 +1561,13 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
     public KLineEntity getItem(int position) {
         try {
             if (position < 0 || position >= configManager.modelArray.size()) {
-                android.util.Log.w("BaseKLineChartView", "getItem() - Invalid position: " + position + " (size: " + configManager.modelArray.size() + ")");
+                if (configManager.debugTrace) android.util.Log.w("BaseKLineChartView", "getItem() - Invalid position: " + position + " (size: " + configManager.modelArray.size() + ")");
                 return null;
             }
+            // 列式存储每次返回新的实体, 调用方可以一直持有
             KLineEntity item = configManager.modelArray.get(position);
             if (item == null) {
-                android.util.Log.w("BaseKLineChartView", "getItem() - Item at position " + position + " is null");
+                if (configManager.debugTrace) android.util.Log.w("BaseKLineChartView", "getItem() - Item at position " + position + " is null");
             }
             return item;
         } catch (Exception e) {
@@ -1396,6 +1576,39 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         }
     }
 
+    /**
+     * 根据索引把实体读到游标里, 列式存储时不分配对象
+     * Only valid until the cursor is read into again, keep the result with getItem instead.
+     * Bounds are checked by the caller.
+     *
+     * @param position 索引值
+     * @param cursor   列式存储时写入的实体
+     * @return the cursor, or the entity held by a plain list
+     */
+    public KLineEntity readItem(int position, KLineEntity cursor) {
+        if (configManager.modelArray instanceof KLineColumnStore) {
+            return ((KLineColumnStore) configManager.modelArray).read(position, cursor);
+        }
+        return configManager.modelArray.get(position);
+    }
+
+    /**
+     * 时间文字, 二进制数据没有 dateString, 用时间戳格式化
+     *
+     * @param position 索引值
+     * @return
+     */
+    public String getItemDate(int position) {
+        KLineEntity item = getItem(position);
+        if (item == null) {
+            return "";
+        }
+        if (item.Date != null) {
+            return item.Date;
+        }
+        return formatDateTime(new Date(item.time));
+    }
+
     /**
      * 根据索引索取x坐标
      *
@@ -1880,9 +2093,9 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
         // Check if touch is on close price label
         boolean isOnClosePriceLabel = mClosePriceLabelFrame.contains(x, y);
 
-        android.util.Log.d("BaseKLineChartView", "tapLocation: (" + x + ", " + y + ")");
-        android.util.Log.d("BaseKLineChartView", "closePriceLabelFrame: " + mClosePriceLabelFrame);
-        android.util.Log.d("BaseKLineChartView", "isOnClosePriceLabel: " + isOnClosePriceLabel);
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "tapLocation: (" + x + ", " + y + ")");
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "closePriceLabelFrame: " + mClosePriceLabelFrame);
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "isOnClosePriceLabel: " + isOnClosePriceLabel);
 
         // Trigger the chart touch callback
         if (configManager.onChartTouch != null) {
@@ -1930,7 +2143,7 @@ public abstract class BaseKLineChartView extends ScrollAndScaleView implements D
      */
     public void resetScrollLeftTrigger() {
         mHasTriggeredLeftSide = false;
-        android.util.Log.d("BaseKLineChartView", "Reset scroll left trigger flag");
+        if (configManager.debugTrace) android.util.Log.d("BaseKLineChartView", "Reset scroll left trigger flag");
     }
 
 }
@@ -1,5 +1,7 @@
 package com.github.fujianlian.klinechart;
 
+import com.github.fujianlian.klinechart.utils.RollingExtrema;
+
 import java.util.List;
 
 /**
@@ -47,21 +49,25 @@ public class DataHelper {
      * @param dataList
      */
     static void calculateKDJ(List<KLineEntity> dataList) {
+        calculateKDJ(dataList, 14);
+    }
+
+    /**
+     * 计算kdj
+     *
+     * @param dataList
+     * @param n        最高价/最低价的窗口长度
+     */
+    static void calculateKDJ(List<KLineEntity> dataList, int n) {
         float k = 0;
         float d = 0;
+        RollingExtrema extrema = new RollingExtrema(n);
         for (int i = 0; i < dataList.size(); i++) {
             KLineEntity point = dataList.get(i);
             final float closePrice = point.getClosePrice();
-            int startIndex = i - 13;
-            if (startIndex < 0) {
-                startIndex = 0;
-            }
-            float max14 = Float.MIN_VALUE;
-            float min14 = Float.MAX_VALUE;
-            for (int index = startIndex; index <= i; index++) {
-                max14 = Math.max(max14, dataList.get(index).getHighPrice());
-                min14 = Math.min(min14, dataList.get(index).getLowPrice());
-            }
+            extrema.push(point.getHighPrice(), point.getLowPrice());
+            float max14 = extrema.getMax();
+            float min14 = extrema.getMin();
             Float rsv = 100f * (closePrice - min14) / (max14 - min14);
             if (rsv.isNaN()) {
                 rsv = 0f;
@@ -73,11 +79,11 @@ public class DataHelper {
                 k = (rsv + 2f * k) / 3f;
                 d = (k + 2f * d) / 3f;
             }
-            if (i < 13) {
+            if (i < n - 1) {
                 point.k = 0;
                 point.d = 0;
                 point.j = 0;
-            } else if (i == 13 || i == 14) {
+            } else if (i <= n) {
                 point.k = k;
                 point.d = 0;
                 point.j = 0;
@@ -96,23 +102,27 @@ public class DataHelper {
      * @param dataList
      */
     static void calculateWR(List<KLineEntity> dataList) {
+        calculateWR(dataList, 14);
+    }
+
+    /**
+     * 计算wr
+     *
+     * @param dataList
+     * @param n        周期, 窗口包含当前点及之前 n 个点
+     */
+    static void calculateWR(List<KLineEntity> dataList, int n) {
         Float r;
+        RollingExtrema extrema = new RollingExtrema(n + 1);
         for (int i = 0; i < dataList.size(); i++) {
             KLineEntity point = dataList.get(i);
-            int startIndex = i - 14;
-            if (startIndex < 0) {
-                startIndex = 0;
-            }
-            float max14 = Float.MIN_VALUE;
-            float min14 = Float.MAX_VALUE;
-            for (int index = startIndex; index <= i; index++) {
-                max14 = Math.max(max14, dataList.get(index).getHighPrice());
-                min14 = Math.min(min14, dataList.get(index).getLowPrice());
-            }
-            if (i < 13) {
+            extrema.push(point.getHighPrice(), point.getLowPrice());
+            if (i < n - 1) {
                 point.r = -10;
             } else {
-                r = -100 * (max14 - dataList.get(i).getClosePrice()) / (max14 - min14);
+                float max14 = extrema.getMax();
+                float min14 = extrema.getMin();
+                r = -100 * (max14 - point.getClosePrice()) / (max14 - min14);
                 if (r.isNaN()) {
                     point.r = 0;
                 } else {
@@ -161,31 +171,46 @@ public class DataHelper {
     }
 
     /**
-     * 计算 BOLL 需要在计算ma之后进行
+     * 计算 BOLL
      *
      * @param dataList
      */
     static void calculateBOLL(List<KLineEntity> dataList) {
+        calculateBOLL(dataList, 20, 2f);
+    }
+
+    /**
+     * 计算 BOLL, 单次遍历, 用滑动窗口的 Welford 方差, 不依赖 ma
+     *
+     * @param dataList
+     * @param n        周期
+     * @param p        标准差倍数
+     */
+    static void calculateBOLL(List<KLineEntity> dataList, int n, float p) {
+        double mean = 0;
+        double m2 = 0;
         for (int i = 0; i < dataList.size(); i++) {
             KLineEntity point = dataList.get(i);
-            if (i < 19) {
+            double closePrice = point.getClosePrice();
+            if (i < n) {
+                double delta = closePrice - mean;
+                mean += delta / (i + 1);
+                m2 += delta * (closePrice - mean);
+            } else {
+                double oldPrice = dataList.get(i - n).getClosePrice();
+                double oldMean = mean;
+                mean += (closePrice - oldPrice) / n;
+                m2 += (closePrice - oldPrice) * (closePrice - mean + oldPrice - oldMean);
+            }
+            if (i < n - 1) {
                 point.mb = 0;
                 point.up = 0;
                 point.dn = 0;
             } else {
-                int n = 20;
-                float md = 0;
-                for (int j = i - n + 1; j <= i; j++) {
-                    float c = dataList.get(j).getClosePrice();
-                    float m = point.getMA20Price();
-                    float value = c - m;
-                    md += value * value;
-                }
-                md = md / (n - 1);
-                md = (float) Math.sqrt(md);
-                point.mb = point.getMA20Price();
-                point.up = point.mb + 2f * md;
-                point.dn = point.mb - 2f * md;
+                float md = n > 1 ? (float) Math.sqrt(Math.max(0, m2) / (n - 1)) : 0f;
+                point.mb = (float) mean;
+                point.up = point.mb + p * md;
+                point.dn = point.mb - p * md;
             }
         }
 
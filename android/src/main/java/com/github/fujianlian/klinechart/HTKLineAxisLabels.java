@@ -0,0 +1,243 @@
+package com.github.fujianlian.klinechart;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * 时间轴刻度缓存
+ * Puts the x-axis labels on the first bar after a time boundary (minute, hour, day, week, month,
+ * year), with the smallest step whose labels do not overlap at the current zoom. The tick list of
+ * the whole series is kept, so scrolling only binary-searches it. It is rebuilt when the step or
+ * the bars change, appended bars are scanned incrementally. Label strings and widths are cached.
+ */
+public class HTKLineAxisLabels {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long WEEK = 7 * DAY;
+
+    // Fixed steps in milliseconds, aligned to the local time zone
+    private static final long[] STEPS = {
+            MINUTE, 5 * MINUTE, 15 * MINUTE, 30 * MINUTE,
+            HOUR, 2 * HOUR, 4 * HOUR, 6 * HOUR, 12 * HOUR,
+            DAY, WEEK
+    };
+
+    // Calendar steps after the fixed ones, in months
+    private static final int[] MONTH_STEPS = {1, 3, 6, 12};
+
+    private static final int MAX_WIDTH_CACHE = 512;
+
+    private final Calendar mCalendar = Calendar.getInstance();
+
+    private final HashMap<String, Float> mWidths = new HashMap<>();
+
+    private float mTextSize;
+
+    private Typeface mTypeface;
+
+    private List<KLineEntity> mData;
+
+    private long mRemovedCount;
+
+    private long mFirstTime;
+
+    // Smallest gap between two bars, 0 when the bars carry no time
+    private long mInterval;
+
+    // Index into STEPS followed by MONTH_STEPS, -1 before the first scan
+    private int mStep = -1;
+
+    private int mScannedSize;
+
+    private long mLastScannedTime;
+
+    private long mLastBucket;
+
+    private int[] mTicks = new int[32];
+
+    private String[] mLabels = new String[32];
+
+    private int mTickCount;
+
+    /**
+     * Bring the ticks up to date, only compares a few values when neither the step nor the bars changed
+     *
+     * @param data       bars in ascending time order
+     * @param barWidth   width of one bar on screen
+     * @param minSpacing smallest distance between the starts of two labels
+     * @return false when the bars carry no usable time, the caller draws fixed columns instead
+     */
+    public boolean update(List<KLineEntity> data, float barWidth, float minSpacing) {
+        int size = data.size();
+        if (size < 2 || barWidth <= 0) {
+            return false;
+        }
+        long removedCount = data instanceof KLineColumnStore ? ((KLineColumnStore) data).getRemovedCount() : 0;
+        // Anything but bars appended after the scanned ones means a rescan
+        boolean appended = data == mData && removedCount == mRemovedCount && size >= mScannedSize
+                && timeAt(data, 0) == mFirstTime
+                && (mScannedSize == 0 || timeAt(data, mScannedSize - 1) == mLastScannedTime);
+        if (!appended) {
+            mData = data;
+            mRemovedCount = removedCount;
+            mFirstTime = timeAt(data, 0);
+            mInterval = estimateInterval(data);
+            reset();
+        } else if (mInterval <= 0 && size > mScannedSize) {
+            mInterval = estimateInterval(data);
+        }
+        if (mInterval <= 0) {
+            return false;
+        }
+
+        int step = chooseStep((long) Math.ceil(minSpacing / barWidth) * mInterval);
+        if (step != mStep) {
+            mStep = step;
+            reset();
+        }
+        scan(data, size);
+        return true;
+    }
+
+    private void reset() {
+        mScannedSize = 0;
+        mTickCount = 0;
+        Arrays.fill(mLabels, null);
+    }
+
+    private int chooseStep(long minMillis) {
+        for (int i = 0; i < STEPS.length; i++) {
+            if (STEPS[i] >= minMillis) {
+                return i;
+            }
+        }
+        for (int i = 0; i < MONTH_STEPS.length; i++) {
+            if (MONTH_STEPS[i] * 30 * DAY >= minMillis) {
+                return STEPS.length + i;
+            }
+        }
+        return STEPS.length + MONTH_STEPS.length - 1;
+    }
+
+    private void scan(List<KLineEntity> data, int size) {
+        for (int i = mScannedSize; i < size; i++) {
+            long bucket = bucketOf(timeAt(data, i));
+            if (i > 0 && bucket != mLastBucket) {
+                addTick(i);
+            }
+            mLastBucket = bucket;
+        }
+        if (size > mScannedSize) {
+            mScannedSize = size;
+            mLastScannedTime = timeAt(data, size - 1);
+        }
+    }
+
+    private long bucketOf(long time) {
+        if (mStep < STEPS.length) {
+            long localTime = time + TimeZone.getDefault().getOffset(time);
+            if (STEPS[mStep] == WEEK) {
+                // 1970-01-01 is a Thursday, weeks start on Monday
+                return Math.floorDiv(Math.floorDiv(localTime, DAY) + 3, 7);
+            }
+            return Math.floorDiv(localTime, STEPS[mStep]);
+        }
+        mCalendar.setTimeInMillis(time);
+        int month = mCalendar.get(Calendar.YEAR) * 12 + mCalendar.get(Calendar.MONTH);
+        return month / MONTH_STEPS[mStep - STEPS.length];
+    }
+
+    private void addTick(int index) {
+        if (mTickCount == mTicks.length) {
+            mTicks = Arrays.copyOf(mTicks, mTickCount * 2);
+            mLabels = Arrays.copyOf(mLabels, mTickCount * 2);
+        }
+        mTicks[mTickCount++] = index;
+    }
+
+    private static long estimateInterval(List<KLineEntity> data) {
+        int size = data.size();
+        long interval = 0;
+        for (int i = Math.max(1, size - 32); i < size; i++) {
+            long delta = timeAt(data, i) - timeAt(data, i - 1);
+            if (delta > 0 && (interval == 0 || delta < interval)) {
+                interval = delta;
+            }
+        }
+        return interval;
+    }
+
+    private static long timeAt(List<KLineEntity> data, int index) {
+        if (data instanceof KLineColumnStore) {
+            return ((KLineColumnStore) data).getTime(index);
+        }
+        return data.get(index).time;
+    }
+
+    public int getTickCount() {
+        return mTickCount;
+    }
+
+    /**
+     * Bar index of the tick
+     */
+    public int getTick(int tick) {
+        return mTicks[tick];
+    }
+
+    /**
+     * First tick at or after the bar index
+     */
+    public int firstTickFrom(int index) {
+        int low = 0;
+        int high = mTickCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mTicks[mid] < index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Cached label of the tick, null until {@link #setLabel} was called for it
+     */
+    public String getLabel(int tick) {
+        return mLabels[tick];
+    }
+
+    public void setLabel(int tick, String label) {
+        mLabels[tick] = label;
+    }
+
+    /**
+     * Width of text with paint, measured once per distinct text and font
+     */
+    public float measure(String text, Paint paint) {
+        if (paint.getTextSize() != mTextSize || paint.getTypeface() != mTypeface) {
+            mTextSize = paint.getTextSize();
+            mTypeface = paint.getTypeface();
+            mWidths.clear();
+        }
+        Float width = mWidths.get(text);
+        if (width == null) {
+            if (mWidths.size() >= MAX_WIDTH_CACHE) {
+                mWidths.clear();
+            }
+            width = paint.measureText(text);
+            mWidths.put(text, width);
+        }
+        return width;
+    }
+}
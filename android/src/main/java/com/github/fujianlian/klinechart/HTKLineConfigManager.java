@@ -19,10 +19,40 @@ import com.github.fujianlian.klinechart.formatter.ValueFormatter;
 
 public class HTKLineConfigManager {
 
-	public List<KLineEntity> modelArray = new ArrayList<>();
+	public List<KLineEntity> modelArray = new KLineColumnStore();
 
 	public Boolean useImperativeApi = false;
 
+	public Boolean useNativeIndicator = false;
+
+	// Only used and replaced on the main thread, see applyLoadedModelArray
+	public HTKLineIndicatorEngine indicatorEngine = new HTKLineIndicatorEngine();
+
+	// Built by reloadOptionList on the loader thread, swapped in on the main thread together
+	private final Object loadedLock = new Object();
+
+	private List<KLineEntity> loadedModelArray;
+
+	private HTKLineIndicatorEngine loadedIndicatorEngine;
+
+	// HTKLineOptionLoader generation of the optionList the loaded result came from
+	private long loadedGeneration = 0;
+
+	// targetList was received, its lists are then computed natively too
+	private boolean hasTargetList = false;
+
+	// 最多保留的 K 线数量, 0 表示不限制
+	public int maxBarCount = 0;
+
+	// 绘制流程的调试日志, 关闭时不在绘制路径上拼接和输出日志
+	public boolean debugTrace = false;
+
+	// 指标折线按条合并成 drawLines, 关闭时每段单独 drawLine, 用于对比耗时
+	public boolean batchLines = true;
+
+	// 多根 K 线共用一列像素时按桶绘制, 关闭时总是逐根绘制
+	public boolean levelOfDetail = true;
+
 	public Boolean shouldScrollToEnd = true;
 
 	public int scrollPositionAdjustment = 0;
@@ -103,6 +133,9 @@ public class HTKLineConfigManager {
 
     public float candleCornerRadius = 0;
 
+    // 最小缩放比例, 调小后可以缩到多根 K 线共用一列像素
+    public float minScale = 0.5f;
+
     public int minuteVolumeCandleColor = Color.RED;
 
     public float minuteVolumeCandleWidth = 1.5f;
@@ -223,6 +256,7 @@ public class HTKLineConfigManager {
     	    idValue = keyValue.get("time");
     	}
     	entity.id = idValue != null ? ((Number)idValue).intValue() : 0;
+    	entity.time = idValue != null ? ((Number)idValue).longValue() : 0;
 
     	// Handle dateString with fallback
     	Object dateValue = keyValue.get("dateString");
@@ -264,7 +298,7 @@ public class HTKLineConfigManager {
     }
 
     public List<KLineEntity> packModelList(List modelArray) {
-    	List<KLineEntity> modelList = new ArrayList<KLineEntity>();
+    	KLineColumnStore modelList = new KLineColumnStore(modelArray.size());
 //      dateFormat.setTimeZone(TimeZone.getTimeZone("Asia/Shanghai"));
         for (Object object : modelArray) {
             Map<String, Object> keyValue = (Map<String, Object>)object;
@@ -276,20 +310,169 @@ public class HTKLineConfigManager {
     }
 
 
+    private int parseTargetPeriod(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private float parseTargetFloat(String value, float defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Float.parseFloat(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 解码二进制 K 线数据, 格式见 {@link KLineBinaryDecoder}
+     */
+    public KLineColumnStore packModelBuffer(String modelBuffer) {
+        return this.packModelBuffer(modelBuffer, this.indicatorEngine);
+    }
+
+    private KLineColumnStore packModelBuffer(String modelBuffer, HTKLineIndicatorEngine engine) {
+        return KLineBinaryDecoder.decode(modelBuffer, this.maxBarCount > 0 ? this.getBarLimit(engine) : 0);
+    }
+
+    /**
+     * 实际保留的数量, 不少于指标需要回看的 K 线
+     */
+    public int getBarLimit() {
+        return this.getBarLimit(this.indicatorEngine);
+    }
+
+    private int getBarLimit(HTKLineIndicatorEngine engine) {
+        return Math.max(this.maxBarCount, engine.getLookback() + 1);
+    }
+
+    /**
+     * 按当前 targetList 的周期新建指标计算
+     */
+    private HTKLineIndicatorEngine newIndicatorEngine() {
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setBoll(this.parseTargetPeriod(this.bollN, 20), this.parseTargetFloat(this.bollP, 2f));
+        engine.setKdjN(this.parseTargetPeriod(this.kdjN, 14));
+        engine.setWrN(this.wrList.isEmpty() ? 14 : this.parseTargetPeriod(this.wrList.get(0).title, 14));
+        if (this.hasTargetList) {
+            engine.setTargetLists(this.maList, this.maVolumeList, this.rsiList, this.wrList);
+        }
+        return engine;
+    }
+
+    /**
+     * 主线程调用, 换上 reloadOptionList 在后台加载的 modelArray 和对应的指标计算
+     *
+     * @param latestGeneration generation of the newest optionList passed to the loader, an older
+     *                         result is left for the newer one to replace
+     */
+    public void applyLoadedModelArray(long latestGeneration) {
+        List<KLineEntity> loadedList;
+        synchronized (this.loadedLock) {
+            if (this.loadedGeneration < latestGeneration) {
+                return;
+            }
+            loadedList = this.loadedModelArray;
+            if (this.loadedIndicatorEngine != null) {
+                this.indicatorEngine = this.loadedIndicatorEngine;
+            }
+            if (loadedList != null) {
+                this.modelArray = loadedList;
+            }
+            this.loadedModelArray = null;
+            this.loadedIndicatorEngine = null;
+        }
+        if (this.useNativeIndicator && loadedList == null && this.indicatorEngine.getCount() == 0) {
+            // Periods changed or native indicators turned on for the current data
+            synchronized (this.modelArray) {
+                this.indicatorEngine.calculate(this.modelArray);
+            }
+        }
+    }
+
+    /**
+     * 超过 maxBarCount 时裁掉离可见区域更远的一端, 调用方需持有 modelArray 的锁
+     *
+     * @param firstVisibleIndex 可见区域第一根
+     * @param lastVisibleIndex  可见区域最后一根
+     * @return 从头部裁掉的数量, 用于修正滚动位置
+     */
+    public int trimToMaxBarCount(int firstVisibleIndex, int lastVisibleIndex) {
+        if (this.maxBarCount <= 0) {
+            return 0;
+        }
+        int size = this.modelArray.size();
+        int overflow = size - this.getBarLimit();
+        if (overflow <= 0) {
+            return 0;
+        }
+        if (firstVisibleIndex >= size - 1 - lastVisibleIndex) {
+            this.modelArray.subList(0, overflow).clear();
+            this.indicatorEngine.removeFirst(overflow);
+            return overflow;
+        }
+        this.modelArray.subList(size - overflow, size).clear();
+        // The running values are past the removed bars, recompute on the next append
+        this.indicatorEngine.reset();
+        return 0;
+    }
+
     public void reloadOptionList(Map optionList) {
+        this.reloadOptionList(optionList, null);
+    }
+
+    public void reloadOptionList(Map optionList, KLineColumnStore streamedModelArray) {
+        this.reloadOptionList(optionList, streamedModelArray, 0);
+    }
+
+    /**
+     * @param optionList
+     * @param streamedModelArray modelArray already decoded by {@link HTKLineOptionReader}, null to read it from optionList
+     * @param generation         loader generation of this optionList, see {@link #applyLoadedModelArray(long)}
+     */
+    public void reloadOptionList(Map optionList, KLineColumnStore streamedModelArray, long generation) {
 
         Boolean useImperativeApiValue = (Boolean)optionList.get("useImperativeApi");
         if (useImperativeApiValue != null) {
             this.useImperativeApi = useImperativeApiValue;
         }
 
-    	List modelArray = (List)optionList.get("modelArray");
-    	if (!this.useImperativeApi && modelArray != null) {
-    		this.modelArray = this.packModelList(modelArray);
-    	}
+        Boolean useNativeIndicatorValue = (Boolean)optionList.get("useNativeIndicator");
+        if (useNativeIndicatorValue != null) {
+            this.useNativeIndicator = useNativeIndicatorValue;
+        }
+
+        Boolean debugTraceValue = (Boolean)optionList.get("debugTrace");
+        if (debugTraceValue != null) {
+            this.debugTrace = debugTraceValue;
+        }
+
+        Boolean batchLinesValue = (Boolean)optionList.get("batchLines");
+        if (batchLinesValue != null) {
+            this.batchLines = batchLinesValue;
+        }
+
+        Boolean levelOfDetailValue = (Boolean)optionList.get("levelOfDetail");
+        if (levelOfDetailValue != null) {
+            this.levelOfDetail = levelOfDetailValue;
+        }
+
+        Number maxBarCountValue = (Number)optionList.get("maxBarCount");
+        if (maxBarCountValue != null) {
+            this.maxBarCount = Math.max(0, maxBarCountValue.intValue());
+        }
 
     	Map targetList = (Map)optionList.get("targetList");
     	if (targetList != null) {
+    		this.hasTargetList = true;
     		this.maList = HTKLineTargetItem.packModelArray((List) targetList.get("maList"));
 	        this.maVolumeList = HTKLineTargetItem.packModelArray((List) targetList.get("maVolumeList"));
 	        this.rsiList = HTKLineTargetItem.packModelArray((List) targetList.get("rsiList"));
@@ -304,6 +487,51 @@ public class HTKLineConfigManager {
 	        this.kdjM2 = (String) targetList.get("kdjM2");
     	}
 
+    	// This runs on the loader thread, modelArray and indicatorEngine in use are left to the main thread
+    	HTKLineIndicatorEngine engine = this.newIndicatorEngine();
+    	List<KLineEntity> loadedList = null;
+    	List modelArray = (List)optionList.get("modelArray");
+    	String modelBuffer = (String)optionList.get("modelBuffer");
+    	if (!this.useImperativeApi && streamedModelArray != null) {
+    		int overflow = this.maxBarCount > 0 ? streamedModelArray.size() - this.getBarLimit(engine) : 0;
+    		if (overflow > 0) {
+    		    streamedModelArray.subList(0, overflow).clear();
+    		}
+    		loadedList = streamedModelArray;
+    	} else if (!this.useImperativeApi && modelArray != null) {
+    		int overflow = this.maxBarCount > 0 ? modelArray.size() - this.getBarLimit(engine) : 0;
+    		if (overflow > 0) {
+    		    // Only keep the latest bars, the chart opens at the end
+    		    modelArray = modelArray.subList(overflow, modelArray.size());
+    		}
+    		loadedList = this.packModelList(modelArray);
+    	} else if (!this.useImperativeApi && modelBuffer != null) {
+    		loadedList = this.packModelBuffer(modelBuffer, engine);
+    	}
+    	boolean engineChanged;
+    	synchronized (this.loadedLock) {
+    	    engineChanged = !engine.hasSameSettings(this.loadedIndicatorEngine != null ? this.loadedIndicatorEngine : this.indicatorEngine);
+    	    if (loadedList == null && engineChanged) {
+    	        // Not applied yet, recompute it with the new periods
+    	        loadedList = this.loadedModelArray;
+    	        this.loadedModelArray = null;
+    	    }
+    	}
+    	if (loadedList != null || engineChanged) {
+    	    if (loadedList != null && this.useNativeIndicator) {
+    	        engine.calculate(loadedList);
+    	    }
+    	    synchronized (this.loadedLock) {
+    	        if (loadedList != null) {
+    	            this.loadedModelArray = loadedList;
+    	        }
+    	        this.loadedIndicatorEngine = engine;
+    	    }
+    	}
+    	synchronized (this.loadedLock) {
+    	    this.loadedGeneration = generation;
+    	}
+
     	Map drawList = (Map)optionList.get("drawList");
     	if (drawList != null) {
     	    Number shotBackgroundColorValue = (Number)drawList.get("shotBackgroundColor");
@@ -448,6 +676,11 @@ public class HTKLineConfigManager {
         this.itemWidth = ((Number)configList.get("itemWidth")).floatValue();
         this.candleWidth = ((Number)configList.get("candleWidth")).floatValue();
 
+        Number minScaleValue = (Number)configList.get("minScale");
+        if (minScaleValue != null) {
+            this.minScale = minScaleValue.floatValue();
+        }
+
         Number candleCornerRadiusValue = (Number)configList.get("candleCornerRadius");
         if (candleCornerRadiusValue != null) {
             this.candleCornerRadius = candleCornerRadiusValue.floatValue();
@@ -0,0 +1,722 @@
+package com.github.fujianlian.klinechart;
+
+import com.github.fujianlian.klinechart.utils.RollingExtrema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 增量指标计算
+ * Keeps the running state of MA, MACD, BOLL, RSI, KDJ, WR and volume MA so that
+ * appending or replacing the tail only computes the new bars. The results are the
+ * same as {@link DataHelper#calculate(List)} over the whole list. After
+ * {@link #setTargetLists} the maList, maVolumeList, rsiList and wrList the draws read are
+ * filled too, one line per target item with its title as the period, using the same
+ * formulas as the example app's indicators.js.
+ */
+public class HTKLineIndicatorEngine {
+
+    private static final int[] MA_PERIODS = {5, 10, 20, 30, 60};
+
+    /**
+     * Number of last bars a late tick can rewind to without recomputing every bar
+     */
+    public static final int ROLLBACK_BARS = 16;
+
+    /**
+     * One line of a target list
+     */
+    private static class Target {
+
+        final String title;
+
+        final int index;
+
+        final int period;
+
+        Target(String title, int index, int period) {
+            this.title = title;
+            this.index = index;
+            this.period = period;
+        }
+
+        boolean sameAs(Target target) {
+            return title.equals(target.title) && index == target.index && period == target.period;
+        }
+    }
+
+    /**
+     * Target list written by the engine. It remembers the bar it was made for, so a list
+     * copied to a new neighbouring bar is replaced instead of overwritten in place.
+     */
+    private static class TargetList extends ArrayList<HTKLineTargetItem> {
+
+        final long time;
+
+        TargetList(long time, int capacity) {
+            super(capacity);
+            this.time = time;
+        }
+    }
+
+    /**
+     * Running values after the last computed bar
+     */
+    private static class State {
+
+        float[] maSum = new float[MA_PERIODS.length];
+
+        float volumeMa5;
+
+        float volumeMa10;
+
+        float ema12;
+
+        float ema26;
+
+        float dea;
+
+        double bollMean;
+
+        double bollM2;
+
+        float rsiMaxEma;
+
+        float rsiABSEma;
+
+        float k;
+
+        float d;
+
+        // Running sums of the target lists, one per target
+        double[] targetMaSum = new double[0];
+
+        double[] targetVolumeSum = new double[0];
+
+        double[] rsiGainSum = new double[0];
+
+        double[] rsiLossSum = new double[0];
+
+        void resize(int maCount, int volumeCount, int rsiCount) {
+            targetMaSum = new double[maCount];
+            targetVolumeSum = new double[volumeCount];
+            rsiGainSum = new double[rsiCount];
+            rsiLossSum = new double[rsiCount];
+        }
+
+        void reset() {
+            for (int i = 0; i < maSum.length; i++) {
+                maSum[i] = 0;
+            }
+            volumeMa5 = 0;
+            volumeMa10 = 0;
+            ema12 = 0;
+            ema26 = 0;
+            dea = 0;
+            bollMean = 0;
+            bollM2 = 0;
+            rsiMaxEma = 0;
+            rsiABSEma = 0;
+            k = 0;
+            d = 0;
+            Arrays.fill(targetMaSum, 0);
+            Arrays.fill(targetVolumeSum, 0);
+            Arrays.fill(rsiGainSum, 0);
+            Arrays.fill(rsiLossSum, 0);
+        }
+
+        void copyFrom(State state) {
+            System.arraycopy(state.maSum, 0, maSum, 0, maSum.length);
+            volumeMa5 = state.volumeMa5;
+            volumeMa10 = state.volumeMa10;
+            ema12 = state.ema12;
+            ema26 = state.ema26;
+            dea = state.dea;
+            bollMean = state.bollMean;
+            bollM2 = state.bollM2;
+            rsiMaxEma = state.rsiMaxEma;
+            rsiABSEma = state.rsiABSEma;
+            k = state.k;
+            d = state.d;
+            System.arraycopy(state.targetMaSum, 0, targetMaSum, 0, targetMaSum.length);
+            System.arraycopy(state.targetVolumeSum, 0, targetVolumeSum, 0, targetVolumeSum.length);
+            System.arraycopy(state.rsiGainSum, 0, rsiGainSum, 0, rsiGainSum.length);
+            System.arraycopy(state.rsiLossSum, 0, rsiLossSum, 0, rsiLossSum.length);
+        }
+    }
+
+    private final State mState = new State();
+
+    // State before each of the last ROLLBACK_BARS computed bars, by bar index since the last reset
+    private final State[] mHistory = new State[ROLLBACK_BARS];
+
+    {
+        for (int n = 0; n < mHistory.length; n++) {
+            mHistory[n] = new State();
+        }
+    }
+
+    private int mCount = 0;
+
+    // Bars removed from the head since the last reset, so warm-up still counts from the first bar
+    private int mOffset = 0;
+
+    // Reused for the bar being computed when the list is a column store
+    private final KLineEntity mCursor = new KLineEntity();
+
+    private int mBollN = 20;
+
+    private float mBollP = 2f;
+
+    private int mKdjN = 14;
+
+    private int mWrN = 14;
+
+    // Highest high and lowest low of the KDJ and WR windows, ending at the last computed bar
+    private final RollingExtrema mKdjExtrema = new RollingExtrema(mKdjN);
+
+    private final RollingExtrema mWrExtrema = new RollingExtrema(mWrN + 1);
+
+    // Target lists are only written after setTargetLists, until then the lists of the data are kept
+    private boolean mHasTargets = false;
+
+    private Target[] mMaTargets = new Target[0];
+
+    private Target[] mVolumeTargets = new Target[0];
+
+    private Target[] mRsiTargets = new Target[0];
+
+    private Target[] mWrTargets = new Target[0];
+
+    private RollingExtrema[] mWrTargetExtrema = new RollingExtrema[0];
+
+    /**
+     * Number of leading bars whose indicators are up to date
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Number of bars before the last one that the next bar still reads
+     */
+    public int getLookback() {
+        int lookback = Math.max(MA_PERIODS[MA_PERIODS.length - 1], 10);
+        lookback = Math.max(lookback, mBollN);
+        lookback = Math.max(lookback, mKdjN);
+        lookback = Math.max(lookback, mWrN + 1);
+        lookback = Math.max(lookback, maxPeriod(mMaTargets));
+        lookback = Math.max(lookback, maxPeriod(mVolumeTargets));
+        lookback = Math.max(lookback, maxPeriod(mRsiTargets) + 1);
+        return Math.max(lookback, maxPeriod(mWrTargets));
+    }
+
+    private static int maxPeriod(Target[] targets) {
+        int period = 0;
+        for (Target target : targets) {
+            period = Math.max(period, target.period);
+        }
+        return period;
+    }
+
+    /**
+     * Forget all running state, the next call recomputes from the first bar
+     */
+    public void reset() {
+        mState.reset();
+        for (State state : mHistory) {
+            state.reset();
+        }
+        mKdjExtrema.reset(mKdjN);
+        mWrExtrema.reset(mWrN + 1);
+        for (int n = 0; n < mWrTargets.length; n++) {
+            mWrTargetExtrema[n].reset(mWrTargets[n].period);
+        }
+        mCount = 0;
+        mOffset = 0;
+    }
+
+    /**
+     * The first count bars were removed from the list, keep the running state of the rest.
+     * When fewer than {@link #getLookback()} computed bars are left the next bar could not read
+     * its window, so everything is recomputed on the next call instead
+     */
+    public void removeFirst(int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (count >= mCount || mCount - count < getLookback()) {
+            reset();
+            return;
+        }
+        mCount -= count;
+        mOffset += count;
+    }
+
+    /**
+     * BOLL 周期和标准差倍数, 改变后从第一根重新计算
+     */
+    public void setBoll(int bollN, float bollP) {
+        bollN = Math.max(1, bollN);
+        if (mBollN != bollN || mBollP != bollP) {
+            mBollN = bollN;
+            mBollP = bollP;
+            reset();
+        }
+    }
+
+    /**
+     * KDJ 周期, 改变后从第一根重新计算
+     */
+    public void setKdjN(int kdjN) {
+        kdjN = Math.max(1, kdjN);
+        if (mKdjN != kdjN) {
+            mKdjN = kdjN;
+            reset();
+        }
+    }
+
+    /**
+     * WR 周期, 改变后从第一根重新计算
+     */
+    public void setWrN(int wrN) {
+        wrN = Math.max(1, wrN);
+        if (mWrN != wrN) {
+            mWrN = wrN;
+            reset();
+        }
+    }
+
+    /**
+     * 指标列表, 每一项按 title 的周期计算并写入每根 K 线的同名列表, 改变后从第一根重新计算.
+     * title 不是正整数的项会被跳过
+     */
+    public void setTargetLists(List<HTKLineTargetItem> maList, List<HTKLineTargetItem> maVolumeList,
+                               List<HTKLineTargetItem> rsiList, List<HTKLineTargetItem> wrList) {
+        Target[] maTargets = targetsOf(maList);
+        Target[] volumeTargets = targetsOf(maVolumeList);
+        Target[] rsiTargets = targetsOf(rsiList);
+        Target[] wrTargets = targetsOf(wrList);
+        if (mHasTargets && sameTargets(mMaTargets, maTargets) && sameTargets(mVolumeTargets, volumeTargets)
+                && sameTargets(mRsiTargets, rsiTargets) && sameTargets(mWrTargets, wrTargets)) {
+            return;
+        }
+        mHasTargets = true;
+        mMaTargets = maTargets;
+        mVolumeTargets = volumeTargets;
+        mRsiTargets = rsiTargets;
+        mWrTargets = wrTargets;
+        mWrTargetExtrema = new RollingExtrema[wrTargets.length];
+        for (int n = 0; n < wrTargets.length; n++) {
+            mWrTargetExtrema[n] = new RollingExtrema(wrTargets[n].period);
+        }
+        mState.resize(maTargets.length, volumeTargets.length, rsiTargets.length);
+        for (State state : mHistory) {
+            state.resize(maTargets.length, volumeTargets.length, rsiTargets.length);
+        }
+        reset();
+    }
+
+    private static Target[] targetsOf(List<HTKLineTargetItem> itemList) {
+        List<Target> targetList = new ArrayList<>();
+        for (HTKLineTargetItem item : itemList) {
+            try {
+                int period = Integer.parseInt(item.title.trim());
+                if (period > 0) {
+                    targetList.add(new Target(item.title, item.index, period));
+                }
+            } catch (NumberFormatException e) {
+                // Not a period, nothing to compute
+            }
+        }
+        return targetList.toArray(new Target[0]);
+    }
+
+    private static boolean sameTargets(Target[] targets, Target[] otherTargets) {
+        if (targets.length != otherTargets.length) {
+            return false;
+        }
+        for (int n = 0; n < targets.length; n++) {
+            if (!targets[n].sameAs(otherTargets[n])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether engine uses the same periods, so its results can be kept
+     */
+    public boolean hasSameSettings(HTKLineIndicatorEngine engine) {
+        return mBollN == engine.mBollN && mBollP == engine.mBollP
+                && mKdjN == engine.mKdjN && mWrN == engine.mWrN
+                && mHasTargets == engine.mHasTargets
+                && sameTargets(mMaTargets, engine.mMaTargets) && sameTargets(mVolumeTargets, engine.mVolumeTargets)
+                && sameTargets(mRsiTargets, engine.mRsiTargets) && sameTargets(mWrTargets, engine.mWrTargets);
+    }
+
+    /**
+     * Recompute every bar
+     *
+     * @param dataList
+     */
+    public void calculate(List<KLineEntity> dataList) {
+        reset();
+        append(dataList);
+    }
+
+    /**
+     * Compute the bars appended after the last call
+     *
+     * @param dataList
+     */
+    public void append(List<KLineEntity> dataList) {
+        if (mCount > dataList.size()) {
+            reset();
+        }
+        for (int i = mCount; i < dataList.size(); i++) {
+            step(dataList, i);
+        }
+    }
+
+    /**
+     * Recompute the last bar after it was replaced, plus any bars appended since
+     *
+     * @param dataList
+     */
+    public void updateLast(List<KLineEntity> dataList) {
+        if (mCount > 0 && mCount <= dataList.size()) {
+            updateFrom(dataList, mCount - 1);
+        } else {
+            append(dataList);
+        }
+    }
+
+    /**
+     * Recompute from the bar at index on, after it was replaced or inserted and the bars after
+     * it may have changed too. Within the last {@link #ROLLBACK_BARS} bars the state before the
+     * bar is restored, an older index recomputes every bar
+     *
+     * @param dataList
+     * @param index
+     */
+    public void updateFrom(List<KLineEntity> dataList, int index) {
+        if (index < 0 || index < mCount - ROLLBACK_BARS || index > dataList.size()) {
+            calculate(dataList);
+            return;
+        }
+        if (index < mCount) {
+            mState.copyFrom(mHistory[(index + mOffset) % ROLLBACK_BARS]);
+            mCount = index;
+            refillExtrema(dataList, mKdjExtrema, mKdjN);
+            refillExtrema(dataList, mWrExtrema, mWrN + 1);
+            for (int n = 0; n < mWrTargets.length; n++) {
+                refillExtrema(dataList, mWrTargetExtrema[n], mWrTargets[n].period);
+            }
+        }
+        append(dataList);
+    }
+
+    // The replaced bar may have been the window extreme, so refill the window ending before it
+    private void refillExtrema(List<KLineEntity> dataList, RollingExtrema extrema, int window) {
+        extrema.reset(window);
+        for (int i = Math.max(0, mCount - window + 1); i < mCount; i++) {
+            extrema.push(valueAt(dataList, KLineColumnStore.HIGH, i + mOffset), valueAt(dataList, KLineColumnStore.LOW, i + mOffset));
+        }
+    }
+
+    private void step(List<KLineEntity> dataList, int i) {
+        mHistory[(i + mOffset) % ROLLBACK_BARS].copyFrom(mState);
+        KLineColumnStore store = dataList instanceof KLineColumnStore ? (KLineColumnStore) dataList : null;
+        KLineEntity point = store != null ? store.read(i, mCursor) : dataList.get(i);
+        mKdjExtrema.push(point.getHighPrice(), point.getLowPrice());
+        mWrExtrema.push(point.getHighPrice(), point.getLowPrice());
+        for (RollingExtrema extrema : mWrTargetExtrema) {
+            extrema.push(point.getHighPrice(), point.getLowPrice());
+        }
+        int index = i + mOffset;
+        calculateMA(dataList, point, index);
+        calculateMACD(point, index);
+        calculateBOLL(dataList, point, index);
+        calculateRSI(dataList, point, index);
+        calculateKDJ(point, index);
+        calculateWR(point, index);
+        calculateVolumeMA(dataList, point, index);
+        if (mHasTargets) {
+            point.maList = targetList(point.maList, point, mMaTargets);
+            point.maVolumeList = targetList(point.maVolumeList, point, mVolumeTargets);
+            point.rsiList = targetList(point.rsiList, point, mRsiTargets);
+            point.wrList = targetList(point.wrList, point, mWrTargets);
+            calculateTargetMA(dataList, point.getClosePrice(), index, mMaTargets, mState.targetMaSum, KLineColumnStore.CLOSE, point.maList);
+            calculateTargetMA(dataList, point.getVolume(), index, mVolumeTargets, mState.targetVolumeSum, KLineColumnStore.VOLUME, point.maVolumeList);
+            calculateTargetRSI(dataList, point, index);
+            calculateTargetWR(point, index);
+        }
+        if (store != null) {
+            store.write(i, point);
+        }
+        mCount = i + 1;
+    }
+
+    // Read one value of another bar without materializing it from a column store,
+    // index counts from the first bar since the last reset
+    private float valueAt(List<KLineEntity> dataList, int column, int index) {
+        int i = index - mOffset;
+        if (dataList instanceof KLineColumnStore) {
+            return ((KLineColumnStore) dataList).getFloat(column, i);
+        }
+        KLineEntity point = dataList.get(i);
+        switch (column) {
+            case KLineColumnStore.HIGH:
+                return point.getHighPrice();
+            case KLineColumnStore.LOW:
+                return point.getLowPrice();
+            case KLineColumnStore.VOLUME:
+                return point.getVolume();
+            default:
+                return point.getClosePrice();
+        }
+    }
+
+    private void calculateMA(List<KLineEntity> dataList, KLineEntity point, int i) {
+        final float closePrice = point.getClosePrice();
+        for (int n = 0; n < MA_PERIODS.length; n++) {
+            int period = MA_PERIODS[n];
+            mState.maSum[n] += closePrice;
+            float value;
+            if (i == period - 1) {
+                value = mState.maSum[n] / period;
+            } else if (i >= period) {
+                mState.maSum[n] -= valueAt(dataList, KLineColumnStore.CLOSE, i - period);
+                value = mState.maSum[n] / period;
+            } else {
+                value = 0f;
+            }
+            switch (n) {
+                case 0:
+                    point.MA5Price = value;
+                    break;
+                case 1:
+                    point.MA10Price = value;
+                    break;
+                case 2:
+                    point.MA20Price = value;
+                    break;
+                case 3:
+                    point.MA30Price = value;
+                    break;
+                default:
+                    point.MA60Price = value;
+                    break;
+            }
+        }
+    }
+
+    private void calculateMACD(KLineEntity point, int i) {
+        final float closePrice = point.getClosePrice();
+        if (i == 0) {
+            mState.ema12 = closePrice;
+            mState.ema26 = closePrice;
+        } else {
+            mState.ema12 = mState.ema12 * 11f / 13f + closePrice * 2f / 13f;
+            mState.ema26 = mState.ema26 * 25f / 27f + closePrice * 2f / 27f;
+        }
+        float dif = mState.ema12 - mState.ema26;
+        mState.dea = mState.dea * 8f / 10f + dif * 2f / 10f;
+        point.dif = dif;
+        point.dea = mState.dea;
+        point.macd = (dif - mState.dea) * 2f;
+    }
+
+    private void calculateBOLL(List<KLineEntity> dataList, KLineEntity point, int i) {
+        int n = mBollN;
+        double closePrice = point.getClosePrice();
+        if (i < n) {
+            double delta = closePrice - mState.bollMean;
+            mState.bollMean += delta / (i + 1);
+            mState.bollM2 += delta * (closePrice - mState.bollMean);
+        } else {
+            double oldPrice = valueAt(dataList, KLineColumnStore.CLOSE, i - n);
+            double oldMean = mState.bollMean;
+            mState.bollMean += (closePrice - oldPrice) / n;
+            mState.bollM2 += (closePrice - oldPrice) * (closePrice - mState.bollMean + oldPrice - oldMean);
+        }
+        if (i < n - 1) {
+            point.mb = 0;
+            point.up = 0;
+            point.dn = 0;
+            return;
+        }
+        float md = n > 1 ? (float) Math.sqrt(Math.max(0, mState.bollM2) / (n - 1)) : 0f;
+        point.mb = (float) mState.bollMean;
+        point.up = point.mb + mBollP * md;
+        point.dn = point.mb - mBollP * md;
+    }
+
+    private void calculateRSI(List<KLineEntity> dataList, KLineEntity point, int i) {
+        final float closePrice = point.getClosePrice();
+        float rsi;
+        if (i == 0) {
+            rsi = 0f;
+            mState.rsiABSEma = 0;
+            mState.rsiMaxEma = 0;
+        } else {
+            float lastClosePrice = valueAt(dataList, KLineColumnStore.CLOSE, i - 1);
+            float rMax = Math.max(0, closePrice - lastClosePrice);
+            float rAbs = Math.abs(closePrice - lastClosePrice);
+            mState.rsiMaxEma = (rMax + (14f - 1) * mState.rsiMaxEma) / 14f;
+            mState.rsiABSEma = (rAbs + (14f - 1) * mState.rsiABSEma) / 14f;
+            rsi = (mState.rsiMaxEma / mState.rsiABSEma) * 100;
+        }
+        if (i < 13 || Float.isNaN(rsi)) {
+            rsi = 0f;
+        }
+        point.rsi = rsi;
+    }
+
+    private void calculateKDJ(KLineEntity point, int i) {
+        float max14 = mKdjExtrema.getMax();
+        float min14 = mKdjExtrema.getMin();
+        float rsv = 100f * (point.getClosePrice() - min14) / (max14 - min14);
+        if (Float.isNaN(rsv)) {
+            rsv = 0f;
+        }
+        if (i == 0) {
+            mState.k = 50;
+            mState.d = 50;
+        } else {
+            mState.k = (rsv + 2f * mState.k) / 3f;
+            mState.d = (mState.k + 2f * mState.d) / 3f;
+        }
+        if (i < mKdjN - 1) {
+            point.k = 0;
+            point.d = 0;
+            point.j = 0;
+        } else if (i <= mKdjN) {
+            point.k = mState.k;
+            point.d = 0;
+            point.j = 0;
+        } else {
+            point.k = mState.k;
+            point.d = mState.d;
+            point.j = 3f * mState.k - 2 * mState.d;
+        }
+    }
+
+    private void calculateWR(KLineEntity point, int i) {
+        if (i < mWrN - 1) {
+            point.r = -10;
+            return;
+        }
+        float max14 = mWrExtrema.getMax();
+        float min14 = mWrExtrema.getMin();
+        float r = -100 * (max14 - point.getClosePrice()) / (max14 - min14);
+        point.r = Float.isNaN(r) ? 0 : r;
+    }
+
+    private void calculateVolumeMA(List<KLineEntity> dataList, KLineEntity point, int i) {
+        final float volume = point.getVolume();
+        mState.volumeMa5 += volume;
+        mState.volumeMa10 += volume;
+        if (i == 4) {
+            point.MA5Volume = mState.volumeMa5 / 5f;
+        } else if (i > 4) {
+            mState.volumeMa5 -= valueAt(dataList, KLineColumnStore.VOLUME, i - 5);
+            point.MA5Volume = mState.volumeMa5 / 5f;
+        } else {
+            point.MA5Volume = 0f;
+        }
+        if (i == 9) {
+            point.MA10Volume = mState.volumeMa10 / 10f;
+        } else if (i > 9) {
+            mState.volumeMa10 -= valueAt(dataList, KLineColumnStore.VOLUME, i - 10);
+            point.MA10Volume = mState.volumeMa10 / 10f;
+        } else {
+            point.MA10Volume = 0f;
+        }
+    }
+
+    // Reuse the list the engine wrote for this bar with the same targets, only the values change per tick
+    private static List<HTKLineTargetItem> targetList(List<HTKLineTargetItem> itemList, KLineEntity point, Target[] targets) {
+        if (targets.length == 0) {
+            return Collections.emptyList();
+        }
+        if (itemList instanceof TargetList && ((TargetList) itemList).time == point.time && itemList.size() == targets.length) {
+            boolean same = true;
+            for (int n = 0; n < targets.length && same; n++) {
+                HTKLineTargetItem item = itemList.get(n);
+                same = item.index == targets[n].index && item.title.equals(targets[n].title);
+            }
+            if (same) {
+                return itemList;
+            }
+        }
+        TargetList targetList = new TargetList(point.time, targets.length);
+        for (Target target : targets) {
+            targetList.add(new HTKLineTargetItem(target.title, 0f, true, target.index));
+        }
+        return targetList;
+    }
+
+    // Before the period is reached the value itself is used
+    private void calculateTargetMA(List<KLineEntity> dataList, float value, int i,
+                                   Target[] targets, double[] sums, int column, List<HTKLineTargetItem> itemList) {
+        for (int n = 0; n < targets.length; n++) {
+            Target target = targets[n];
+            sums[n] += value;
+            if (i >= target.period) {
+                sums[n] -= valueAt(dataList, column, i - target.period);
+            }
+            itemList.get(n).value = i < target.period - 1 ? value : (float) (sums[n] / target.period);
+        }
+    }
+
+    // Average gain and loss of the last period changes, 50 until there are period changes
+    private void calculateTargetRSI(List<KLineEntity> dataList, KLineEntity point, int i) {
+        if (mRsiTargets.length == 0) {
+            return;
+        }
+        float change = i > 0 ? point.getClosePrice() - valueAt(dataList, KLineColumnStore.CLOSE, i - 1) : 0f;
+        for (int n = 0; n < mRsiTargets.length; n++) {
+            Target target = mRsiTargets[n];
+            if (i > 0) {
+                mState.rsiGainSum[n] += Math.max(0, change);
+                mState.rsiLossSum[n] += Math.max(0, -change);
+            }
+            if (i > target.period) {
+                int first = i - target.period;
+                float oldChange = valueAt(dataList, KLineColumnStore.CLOSE, first) - valueAt(dataList, KLineColumnStore.CLOSE, first - 1);
+                mState.rsiGainSum[n] -= Math.max(0, oldChange);
+                mState.rsiLossSum[n] -= Math.max(0, -oldChange);
+            }
+            float rsi = 50f;
+            if (i >= target.period) {
+                double gain = Math.max(0, mState.rsiGainSum[n]);
+                double loss = Math.max(0, mState.rsiLossSum[n]);
+                // Rounding of the running sums must not turn a window without losses into a tiny loss
+                if (loss <= (gain + loss) * 1e-9) {
+                    loss = 0;
+                }
+                double rs = loss == 0 ? 100 : gain / loss;
+                rsi = (float) (100 - 100 / (1 + rs));
+            }
+            point.rsiList.get(n).value = rsi;
+        }
+    }
+
+    // -50 until the period is reached or when the window is flat
+    private void calculateTargetWR(KLineEntity point, int i) {
+        for (int n = 0; n < mWrTargets.length; n++) {
+            Target target = mWrTargets[n];
+            float wr = -50f;
+            float highest = mWrTargetExtrema[n].getMax();
+            float lowest = mWrTargetExtrema[n].getMin();
+            if (i >= target.period - 1 && highest != lowest) {
+                wr = -((highest - point.getClosePrice()) / (highest - lowest)) * 100;
+            }
+            point.wrList.get(n).value = wr;
+        }
+    }
+}
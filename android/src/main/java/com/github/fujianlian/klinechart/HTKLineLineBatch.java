@@ -0,0 +1,119 @@
+package com.github.fujianlian.klinechart;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.Arrays;
+
+/**
+ * 指标折线批量绘制
+ * While drawK walks the visible bars, segments are collected per series, a series being a paint
+ * with the color it had when the segment was added. {@link #flush} then draws each series with one
+ * Canvas.drawLines call instead of one drawLine per segment. Point arrays are reused across frames.
+ */
+public class HTKLineLineBatch {
+
+    private static final class Series {
+
+        Paint paint;
+
+        int color;
+
+        float[] points = new float[256];
+
+        int count;
+    }
+
+    private Series[] mSeries = new Series[8];
+
+    private int mSeriesCount;
+
+    // Series of the previous add, consecutive segments usually belong to a few series in turn
+    private int mLastSeries;
+
+    private boolean mActive;
+
+    private int mSegmentCount;
+
+    private int mDrawCallCount;
+
+    public void begin() {
+        mActive = true;
+        mSeriesCount = 0;
+        mLastSeries = 0;
+        mSegmentCount = 0;
+    }
+
+    public boolean isActive() {
+        return mActive;
+    }
+
+    public void add(Paint paint, float startX, float startY, float stopX, float stopY) {
+        Series series = seriesOf(paint, paint.getColor());
+        if (series.count + 4 > series.points.length) {
+            series.points = Arrays.copyOf(series.points, series.points.length * 2);
+        }
+        float[] points = series.points;
+        points[series.count++] = startX;
+        points[series.count++] = startY;
+        points[series.count++] = stopX;
+        points[series.count++] = stopY;
+        mSegmentCount++;
+    }
+
+    private Series seriesOf(Paint paint, int color) {
+        for (int n = 0; n < mSeriesCount; n++) {
+            int i = (mLastSeries + n) % mSeriesCount;
+            Series series = mSeries[i];
+            if (series.paint == paint && series.color == color) {
+                mLastSeries = i;
+                return series;
+            }
+        }
+        if (mSeriesCount == mSeries.length) {
+            mSeries = Arrays.copyOf(mSeries, mSeriesCount * 2);
+        }
+        Series series = mSeries[mSeriesCount];
+        if (series == null) {
+            series = new Series();
+            mSeries[mSeriesCount] = series;
+        }
+        series.paint = paint;
+        series.color = color;
+        series.count = 0;
+        mLastSeries = mSeriesCount++;
+        return series;
+    }
+
+    /**
+     * Draw every collected series in the order it first appeared, and stop collecting
+     */
+    public void flush(Canvas canvas) {
+        mActive = false;
+        mDrawCallCount = 0;
+        for (int i = 0; i < mSeriesCount; i++) {
+            Series series = mSeries[i];
+            if (series.count > 0) {
+                series.paint.setColor(series.color);
+                canvas.drawLines(series.points, 0, series.count, series.paint);
+                mDrawCallCount++;
+            }
+            series.paint = null;
+        }
+        mSeriesCount = 0;
+    }
+
+    /**
+     * 上一帧的线段数
+     */
+    public int getSegmentCount() {
+        return mSegmentCount;
+    }
+
+    /**
+     * 上一帧的 drawLines 调用次数
+     */
+    public int getDrawCallCount() {
+        return mDrawCallCount;
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.fujianlian.klinechart;
+
+import android.os.SystemClock;
+import android.view.View;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * optionList 后台解析
+ * One worker thread per view. Only the newest pending optionList is parsed, anything
+ * that arrives while the worker is busy replaces the pending one. Every load() starts a
+ * new generation, a result whose generation is no longer the latest is dropped before it
+ * is handed to the config manager and again on the main thread.
+ */
+public class HTKLineOptionLoader {
+
+    /**
+     * optionList waiting for the worker with the generation load() gave it
+     */
+    private static class Pending {
+
+        final String optionList;
+
+        final long generation;
+
+        Pending(String optionList, long generation) {
+            this.optionList = optionList;
+            this.generation = generation;
+        }
+    }
+
+    private final HTKLineConfigManager mConfigManager;
+
+    private final View mView;
+
+    private final Runnable mOnLoaded;
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "HTKLineOptionLoader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final AtomicReference<Pending> mPending = new AtomicReference<>();
+
+    private final AtomicLong mGeneration = new AtomicLong();
+
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong mLoadedCount = new AtomicLong();
+
+    // Replaced by a newer optionList before the worker picked it up
+    private final AtomicLong mCoalescedCount = new AtomicLong();
+
+    // Parsed, then skipped because load() was called again meanwhile
+    private final AtomicLong mStaleCount = new AtomicLong();
+
+    private volatile long mLastParseMillis;
+
+    private volatile long mMaxParseMillis;
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param configManager
+     * @param view          the result is applied through view.post
+     * @param onLoaded      runs on the main thread after an optionList was applied
+     */
+    public HTKLineOptionLoader(HTKLineConfigManager configManager, View view, Runnable onLoaded) {
+        mConfigManager = configManager;
+        mView = view;
+        mOnLoaded = onLoaded;
+    }
+
+    public void load(String optionList) {
+        if (mPending.getAndSet(new Pending(optionList, mGeneration.incrementAndGet())) != null) {
+            mCoalescedCount.incrementAndGet();
+        }
+        if (mScheduled.compareAndSet(false, true)) {
+            try {
+                mExecutor.execute(mDrain);
+            } catch (Exception e) {
+                mScheduled.set(false);
+                android.util.Log.e("HTKLineOptionLoader", "Error scheduling optionList", e);
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Pending pending = mPending.getAndSet(null);
+            if (pending == null) {
+                mScheduled.set(false);
+                // load() may have queued one after the getAndSet but before the flag was cleared
+                if (mPending.get() == null || !mScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                long start = SystemClock.elapsedRealtime();
+                // Stream modelArray into the column store instead of building the whole tree first
+                HTKLineOptionReader optionReader = new HTKLineOptionReader();
+                Map optionMap = optionReader.read(pending.optionList);
+                long parseMillis = SystemClock.elapsedRealtime() - start;
+                mLastParseMillis = parseMillis;
+                mMaxParseMillis = Math.max(mMaxParseMillis, parseMillis);
+                if (pending.generation != mGeneration.get()) {
+                    mStaleCount.incrementAndGet();
+                    continue;
+                }
+                mConfigManager.reloadOptionList(optionMap, optionReader.getModelArray(), pending.generation);
+                mLoadedCount.incrementAndGet();
+                mView.post(mOnLoaded);
+            } catch (Exception e) {
+                android.util.Log.e("HTKLineOptionLoader", "Error loading optionList", e);
+            }
+        }
+    }
+
+    /**
+     * Generation of the newest optionList passed to load()
+     */
+    public long getGeneration() {
+        return mGeneration.get();
+    }
+
+    public void release() {
+        mPending.set(null);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * 最近一次解析耗时, 毫秒
+     */
+    public long getLastParseMillis() {
+        return mLastParseMillis;
+    }
+
+    public long getMaxParseMillis() {
+        return mMaxParseMillis;
+    }
+
+    public long getLoadedCount() {
+        return mLoadedCount.get();
+    }
+
+    /**
+     * 被丢弃的 optionList 数量, 包括未解析就被覆盖的和解析后已过期的
+     */
+    public long getDroppedCount() {
+        return mCoalescedCount.get() + mStaleCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return mCoalescedCount.get();
+    }
+
+    public long getStaleCount() {
+        return mStaleCount.get();
+    }
+}
@@ -0,0 +1,235 @@
+package com.github.fujianlian.klinechart;
+
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.parser.JSONToken;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * optionList 流式解析
+ * Reads modelArray entries straight into a {@link KLineColumnStore} and the targetList
+ * arrays straight into {@link HTKLineTargetItem}, so a full reload never holds the whole
+ * document as a Map/List tree. Every other key is returned as a Map for
+ * {@link HTKLineConfigManager#reloadOptionList(Map, KLineColumnStore)}.
+ */
+public class HTKLineOptionReader {
+
+    private KLineColumnStore mModelArray;
+
+    // Reused for every bar, the store copies it
+    private final KLineEntity mEntity = new KLineEntity();
+
+    /**
+     * modelArray of the last read document, null when it had none
+     */
+    public KLineColumnStore getModelArray() {
+        return mModelArray;
+    }
+
+    public Map read(String json) {
+        mModelArray = null;
+        Map optionMap = new HashMap();
+        JSONReader reader = new JSONReader(new StringReader(json));
+        try {
+            reader.config(Feature.UseBigDecimal, false);
+            reader.startObject();
+            while (reader.hasNext()) {
+                String key = reader.readString();
+                if ("modelArray".equals(key) && reader.peek() == JSONToken.LBRACKET) {
+                    mModelArray = readModelArray(reader);
+                } else if ("targetList".equals(key) && reader.peek() == JSONToken.LBRACE) {
+                    optionMap.put(key, readTargetList(reader));
+                } else {
+                    optionMap.put(key, reader.readObject());
+                }
+            }
+            reader.endObject();
+        } finally {
+            reader.close();
+        }
+        return optionMap;
+    }
+
+    private KLineColumnStore readModelArray(JSONReader reader) {
+        KLineColumnStore modelArray = new KLineColumnStore();
+        reader.startArray();
+        while (reader.hasNext()) {
+            modelArray.add(readModel(reader, mEntity));
+        }
+        reader.endArray();
+        return modelArray;
+    }
+
+    /**
+     * Same fields and defaults as {@link HTKLineConfigManager#packModel(Map)}
+     */
+    private KLineEntity readModel(JSONReader reader, KLineEntity entity) {
+        Object idValue = null;
+        Object timeValue = null;
+        entity.Date = "";
+        entity.Open = 0;
+        entity.High = 0;
+        entity.Low = 0;
+        entity.Close = 0;
+        entity.Volume = 0;
+        entity.up = 0;
+        entity.dn = 0;
+        entity.mb = 0;
+        entity.macd = 0;
+        entity.dea = 0;
+        entity.dif = 0;
+        entity.k = 0;
+        entity.d = 0;
+        entity.j = 0;
+        entity.selectedItemList = null;
+        entity.maList = null;
+        entity.maVolumeList = null;
+        entity.rsiList = null;
+        entity.wrList = null;
+
+        reader.startObject();
+        while (reader.hasNext()) {
+            String key = reader.readString();
+            Object value = reader.readObject();
+            if (value == null) {
+                continue;
+            }
+            switch (key) {
+                case "id":
+                    idValue = value;
+                    break;
+                case "time":
+                    timeValue = value;
+                    break;
+                case "dateString":
+                    entity.Date = value.toString();
+                    break;
+                case "open":
+                    entity.Open = floatValue(value);
+                    break;
+                case "high":
+                    entity.High = floatValue(value);
+                    break;
+                case "low":
+                    entity.Low = floatValue(value);
+                    break;
+                case "close":
+                    entity.Close = floatValue(value);
+                    break;
+                case "vol":
+                    entity.Volume = value instanceof Number && !Float.isNaN(floatValue(value)) ? floatValue(value) : 0f;
+                    break;
+                case "selectedItemList":
+                    entity.selectedItemList = (List<Map<String, Object>>) value;
+                    break;
+                case "maList":
+                    entity.maList = HTKLineTargetItem.packModelArray((List) value);
+                    break;
+                case "maVolumeList":
+                    entity.maVolumeList = HTKLineTargetItem.packModelArray((List) value);
+                    break;
+                case "rsiList":
+                    entity.rsiList = HTKLineTargetItem.packModelArray((List) value);
+                    break;
+                case "wrList":
+                    entity.wrList = HTKLineTargetItem.packModelArray((List) value);
+                    break;
+                case "bollUp":
+                    entity.up = floatValue(value);
+                    break;
+                case "bollDn":
+                    entity.dn = floatValue(value);
+                    break;
+                case "bollMb":
+                    entity.mb = floatValue(value);
+                    break;
+                case "macdValue":
+                    entity.macd = floatValue(value);
+                    break;
+                case "macdDea":
+                    entity.dea = floatValue(value);
+                    break;
+                case "macdDif":
+                    entity.dif = floatValue(value);
+                    break;
+                case "kdjD":
+                    entity.k = floatValue(value);
+                    break;
+                case "kdjJ":
+                    entity.d = floatValue(value);
+                    break;
+                case "kdjK":
+                    entity.j = floatValue(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (idValue == null) {
+            idValue = timeValue;
+        }
+        entity.id = idValue != null ? ((Number) idValue).intValue() : 0;
+        entity.time = idValue != null ? ((Number) idValue).longValue() : 0;
+        return entity;
+    }
+
+    private Map readTargetList(JSONReader reader) {
+        Map targetList = new HashMap();
+        reader.startObject();
+        while (reader.hasNext()) {
+            String key = reader.readString();
+            if (reader.peek() == JSONToken.LBRACKET) {
+                targetList.put(key, readTargetItemList(reader));
+            } else {
+                targetList.put(key, reader.readObject());
+            }
+        }
+        reader.endObject();
+        return targetList;
+    }
+
+    private List<HTKLineTargetItem> readTargetItemList(JSONReader reader) {
+        List<HTKLineTargetItem> itemList = new ArrayList<>();
+        reader.startArray();
+        while (reader.hasNext()) {
+            String title = "";
+            float value = 0;
+            boolean selected = true;
+            int index = 0;
+            reader.startObject();
+            while (reader.hasNext()) {
+                String key = reader.readString();
+                Object object = reader.readObject();
+                if (object == null) {
+                    continue;
+                }
+                if ("title".equals(key)) {
+                    title = object.toString();
+                } else if ("value".equals(key)) {
+                    value = floatValue(object);
+                } else if ("selected".equals(key)) {
+                    selected = (Boolean) object;
+                } else if ("index".equals(key)) {
+                    index = ((Number) object).intValue();
+                }
+            }
+            reader.endObject();
+            if (selected) {
+                itemList.add(new HTKLineTargetItem(title, value, selected, index));
+            }
+        }
+        reader.endArray();
+        return itemList;
+    }
+
+    private static float floatValue(Object value) {
+        return ((Number) value).floatValue();
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.fujianlian.klinechart;
+
+import java.util.Arrays;
+
+/**
+ * 绘制耗时统计
+ * Keeps the last {@link #WINDOW} durations of every onDraw phase and of the whole frame, so
+ * p50/p95/p99 can be read at any time. Recording only writes into preallocated rings, the
+ * sorting happens when a percentile is asked for.
+ */
+public class HTKLineRenderStats {
+
+    public static final int CALCULATE_VALUE = 0;
+    public static final int DRAW_GIRD = 1;
+    public static final int DRAW_K = 2;
+    public static final int DRAW_TEXT = 3;
+    public static final int DRAW_MAX_AND_MIN = 4;
+    public static final int DRAW_ORDER_LINES = 5;
+    public static final int DRAW_VALUE = 6;
+    public static final int DRAW_CLOSE_PRICE_LINE = 7;
+    public static final int DRAW_SELECTOR = 8;
+    public static final int DRAW_CONTEXT = 9;
+    public static final int FRAME = 10;
+
+    public static final String[] PHASE_NAMES = {
+            "calculateValue", "drawGird", "drawK", "drawText", "drawMaxAndMin", "drawOrderLines",
+            "drawValue", "drawClosePriceLine", "drawSelector", "drawContext", "frame"
+    };
+
+    public static final int WINDOW = 240;
+
+    // One 60Hz frame
+    public static final long JANK_THRESHOLD_NANOS = 16_666_667L;
+
+    private final long[][] mSamples = new long[PHASE_NAMES.length][WINDOW];
+
+    // Total samples ever recorded per phase, the ring index is count % WINDOW
+    private final long[] mCounts = new long[PHASE_NAMES.length];
+
+    private final long[] mSorted = new long[WINDOW];
+
+    private long mFrameStart;
+
+    private long mPhaseStart;
+
+    private long mJankCount;
+
+    public void beginFrame() {
+        mFrameStart = System.nanoTime();
+        mPhaseStart = mFrameStart;
+    }
+
+    /**
+     * Restart the phase clock, so work between two phases is not counted
+     */
+    public void beginPhase() {
+        mPhaseStart = System.nanoTime();
+    }
+
+    /**
+     * Record the time since the previous mark, beginPhase or beginFrame as phase
+     */
+    public void mark(int phase) {
+        long now = System.nanoTime();
+        record(phase, now - mPhaseStart);
+        mPhaseStart = now;
+    }
+
+    public void endFrame() {
+        long duration = System.nanoTime() - mFrameStart;
+        record(FRAME, duration);
+        if (duration > JANK_THRESHOLD_NANOS) {
+            mJankCount++;
+        }
+    }
+
+    // Package-private so tests can feed known durations
+    void record(int phase, long nanos) {
+        mSamples[phase][(int) (mCounts[phase] % WINDOW)] = nanos;
+        mCounts[phase]++;
+    }
+
+    /**
+     * Frames drawn so far
+     */
+    public long getFrameCount() {
+        return mCounts[FRAME];
+    }
+
+    /**
+     * Frames longer than {@link #JANK_THRESHOLD_NANOS}
+     */
+    public long getJankCount() {
+        return mJankCount;
+    }
+
+    /**
+     * Number of samples percentiles of phase are computed from
+     */
+    public int getSampleCount(int phase) {
+        return (int) Math.min(mCounts[phase], WINDOW);
+    }
+
+    /**
+     * Nearest-rank percentile over the recent samples of phase, in milliseconds, 0 without samples
+     *
+     * @param phase
+     * @param percent 0 - 100
+     */
+    public double getPercentileMillis(int phase, double percent) {
+        int count = getSampleCount(phase);
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(mSamples[phase], 0, mSorted, 0, count);
+        Arrays.sort(mSorted, 0, count);
+        int rank = (int) Math.ceil(percent / 100.0 * count) - 1;
+        return mSorted[Math.max(0, Math.min(count - 1, rank))] / 1e6;
+    }
+
+    public double getMaxMillis(int phase) {
+        return getPercentileMillis(phase, 100);
+    }
+
+    public void reset() {
+        Arrays.fill(mCounts, 0);
+        mJankCount = 0;
+    }
+}
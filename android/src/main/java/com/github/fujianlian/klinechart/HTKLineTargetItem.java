@@ -36,10 +36,24 @@ public class HTKLineTargetItem {
         this.index = index;
     }
 
+    public HTKLineTargetItem(String title, float value, boolean selected, int index) {
+        this.title = title;
+        this.value = value;
+        this.selected = selected;
+        this.index = index;
+    }
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    /**
+     * 元素可以是 Map, 也可以是 HTKLineOptionReader 已经读好的 HTKLineTargetItem
+     */
     public static ArrayList<HTKLineTargetItem> packModelArray(List<Map> valueList) {
         ArrayList<HTKLineTargetItem> modelArray = new ArrayList();
         for (Object object: valueList) {
-            HTKLineTargetItem item = new HTKLineTargetItem((Map) object);
+            HTKLineTargetItem item = object instanceof HTKLineTargetItem ? (HTKLineTargetItem) object : new HTKLineTargetItem((Map) object);
             if (item.selected) {
                 modelArray.add(item);
             }
@@ -0,0 +1,88 @@
+package com.github.fujianlian.klinechart;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 行情推送合并
+ * Ticks are held per candle time, a newer tick for a candle replaces its pending one. Once per
+ * Choreographer frame everything pending is handed to the target in time order, so any tick
+ * rate costs at most one model update and one layout pass per vsync. Main thread only.
+ */
+public class HTKLineTickCoalescer implements Choreographer.FrameCallback {
+
+    public interface Target {
+
+        /**
+         * Latest data of every candle that got a tick since the previous frame, oldest first
+         */
+        void applyCandlesticks(List<Map<String, Object>> candlestickList);
+    }
+
+    private final Target mTarget;
+
+    // Candle time to its latest data, ticks without id or time use 0, which packModel also falls back to
+    private final TreeMap<Long, Map<String, Object>> mPending = new TreeMap<>();
+
+    private boolean mScheduled;
+
+    private long mTickCount;
+
+    private long mFlushCount;
+
+    public HTKLineTickCoalescer(Target target) {
+        mTarget = target;
+    }
+
+    public void offer(Map<String, Object> candlestickData) {
+        Object timeValue = candlestickData.get("id");
+        if (timeValue == null) {
+            timeValue = candlestickData.get("time");
+        }
+        long time = timeValue instanceof Number ? ((Number) timeValue).longValue() : 0;
+        mPending.put(time, candlestickData);
+        mTickCount++;
+        if (!mScheduled) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        if (mPending.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> candlestickList = new ArrayList<>(mPending.values());
+        mPending.clear();
+        mFlushCount++;
+        mTarget.applyCandlesticks(candlestickList);
+    }
+
+    public void release() {
+        mPending.clear();
+        if (mScheduled) {
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * 收到的推送数量
+     */
+    public long getTickCount() {
+        return mTickCount;
+    }
+
+    /**
+     * 实际应用的次数, 每帧最多一次
+     */
+    public long getFlushCount() {
+        return mFlushCount;
+    }
+}
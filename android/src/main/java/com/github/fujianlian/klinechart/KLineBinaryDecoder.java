@@ -0,0 +1,76 @@
+package com.github.fujianlian.klinechart;
+
+import android.util.Base64;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 二进制 K 线数据解码
+ * Layout, all little-endian:
+ * <pre>
+ * int32   version (1)
+ * int32   count
+ * int64   time[count]     epoch milliseconds
+ * float32 open[count]
+ * float32 high[count]
+ * float32 low[count]
+ * float32 close[count]
+ * float32 volume[count]
+ * </pre>
+ * Every column is copied in bulk into {@link KLineColumnStore}, no per-bar objects are created.
+ */
+public class KLineBinaryDecoder {
+
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int BYTES_PER_BAR = 8 + 4 * 5;
+
+    /**
+     * Decode a base64 payload
+     *
+     * @param payload
+     * @param limit   keep only the newest limit bars, 0 keeps all, older bars are never copied
+     */
+    public static KLineColumnStore decode(String payload, int limit) {
+        return decode(Base64.decode(payload, Base64.DEFAULT), limit);
+    }
+
+    public static KLineColumnStore decode(byte[] bytes, int limit) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Candle payload too short: " + bytes.length);
+        }
+        int version = buffer.getInt(0);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported candle payload version: " + version);
+        }
+        int count = buffer.getInt(4);
+        if (count < 0 || bytes.length < HEADER_SIZE + (long) count * BYTES_PER_BAR) {
+            throw new IllegalArgumentException("Candle payload truncated, count " + count + ", length " + bytes.length);
+        }
+        int skip = limit > 0 ? Math.max(0, count - limit) : 0;
+        int keep = count - skip;
+        KLineColumnStore store = new KLineColumnStore(keep);
+        int timeOffset = HEADER_SIZE;
+        int floatOffset = timeOffset + count * 8;
+        store.addColumns(
+                slice(buffer, timeOffset + skip * 8).asLongBuffer(),
+                slice(buffer, floatOffset + skip * 4).asFloatBuffer(),
+                slice(buffer, floatOffset + (count + skip) * 4).asFloatBuffer(),
+                slice(buffer, floatOffset + (count * 2 + skip) * 4).asFloatBuffer(),
+                slice(buffer, floatOffset + (count * 3 + skip) * 4).asFloatBuffer(),
+                slice(buffer, floatOffset + (count * 4 + skip) * 4).asFloatBuffer(),
+                keep
+        );
+        return store;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset) {
+        ByteBuffer duplicate = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        duplicate.position(offset);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -50,19 +50,15 @@ public class KLineChartAdapter extends BaseKLineChartAdapter {
         }
     }
 
+    /**
+     * 按时间戳更新或插入, datas 按时间升序
+     */
     public void reloadKLineItem(KLineEntity entity) {
-    	int findIndex = -1;
-    	for (int i = 0; i < datas.size(); i ++) {
-    		KLineEntity model = datas.get(i);
-    		if (model.getDate().equals(entity.getDate())) {
-    			findIndex = i;
-    			break;
-    		}
-    	}
-    	if (findIndex != -1) {
+    	int findIndex = KLineColumnStore.indexOfTime(datas, entity.time);
+    	if (findIndex >= 0) {
     		datas.set(findIndex, entity);
     	} else {
-    		datas.add(entity);
+    		datas.add(-findIndex - 1, entity);
     	}
     }
 
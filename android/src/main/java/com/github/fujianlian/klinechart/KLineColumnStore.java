@@ -0,0 +1,572 @@
+package com.github.fujianlian.klinechart;
+
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * K 线列式存储
+ * Keeps every bar as a slot in primitive columns instead of one {@link KLineEntity} per bar.
+ * The slots live in [head, head + size) of each column, so the series can grow at both ends.
+ * {@link #get(int)} materializes a new entity, hot paths should use {@link #read(int, KLineEntity)}
+ * with a reused entity or the column getters.
+ */
+public class KLineColumnStore extends AbstractList<KLineEntity> implements RandomAccess {
+
+    public static final int ID = 0;
+    public static final int OPEN = 1;
+    public static final int HIGH = 2;
+    public static final int LOW = 3;
+    public static final int CLOSE = 4;
+    public static final int VOLUME = 5;
+    public static final int MA5 = 6;
+    public static final int MA10 = 7;
+    public static final int MA20 = 8;
+    public static final int MA30 = 9;
+    public static final int MA60 = 10;
+    public static final int DEA = 11;
+    public static final int DIF = 12;
+    public static final int MACD = 13;
+    public static final int K = 14;
+    public static final int D = 15;
+    public static final int J = 16;
+    public static final int R = 17;
+    public static final int RSI = 18;
+    public static final int UP = 19;
+    public static final int MB = 20;
+    public static final int DN = 21;
+    public static final int MA5_VOLUME = 22;
+    public static final int MA10_VOLUME = 23;
+
+    private static final int FLOAT_COLUMN_COUNT = 24;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private float[][] mFloatColumns = new float[FLOAT_COLUMN_COUNT][];
+
+    private long[] mTime;
+
+    // Per-bar references handed over from JS, kept as is
+    private String[] mDate;
+
+    private Object[] mSelectedItemList;
+
+    private Object[] mMaList;
+
+    private Object[] mMaVolumeList;
+
+    private Object[] mRsiList;
+
+    private Object[] mWrList;
+
+    private int mHead = 0;
+
+    private int mSize = 0;
+
+    // Bars trimmed off the head so far, index + mRemovedCount identifies a bar until something is inserted before it
+    private long mRemovedCount = 0;
+
+    // Lowest such position written, inserted or shifted since takeChangedFrom, Long.MAX_VALUE when none
+    private long mChangedFrom = Long.MAX_VALUE;
+
+    public KLineColumnStore() {
+        this(MIN_CAPACITY);
+    }
+
+    public KLineColumnStore(int capacity) {
+        allocate(Math.max(MIN_CAPACITY, capacity));
+    }
+
+    public KLineColumnStore(Collection<? extends KLineEntity> collection) {
+        this(collection.size());
+        addAll(collection);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Number of slots allocated in each column
+     */
+    public int capacity() {
+        return mTime.length;
+    }
+
+    @Override
+    public KLineEntity get(int index) {
+        return read(index, new KLineEntity());
+    }
+
+    /**
+     * Copy the bar at index into the given entity, so it can be reused as a cursor
+     */
+    public KLineEntity read(int index, KLineEntity entity) {
+        int slot = slot(index);
+        float[][] columns = mFloatColumns;
+        entity.id = columns[ID][slot];
+        entity.Open = columns[OPEN][slot];
+        entity.High = columns[HIGH][slot];
+        entity.Low = columns[LOW][slot];
+        entity.Close = columns[CLOSE][slot];
+        entity.Volume = columns[VOLUME][slot];
+        entity.MA5Price = columns[MA5][slot];
+        entity.MA10Price = columns[MA10][slot];
+        entity.MA20Price = columns[MA20][slot];
+        entity.MA30Price = columns[MA30][slot];
+        entity.MA60Price = columns[MA60][slot];
+        entity.dea = columns[DEA][slot];
+        entity.dif = columns[DIF][slot];
+        entity.macd = columns[MACD][slot];
+        entity.k = columns[K][slot];
+        entity.d = columns[D][slot];
+        entity.j = columns[J][slot];
+        entity.r = columns[R][slot];
+        entity.rsi = columns[RSI][slot];
+        entity.up = columns[UP][slot];
+        entity.mb = columns[MB][slot];
+        entity.dn = columns[DN][slot];
+        entity.MA5Volume = columns[MA5_VOLUME][slot];
+        entity.MA10Volume = columns[MA10_VOLUME][slot];
+        entity.time = mTime[slot];
+        entity.Date = mDate[slot];
+        entity.selectedItemList = listOrEmpty(mSelectedItemList[slot]);
+        entity.maList = listOrEmpty(mMaList[slot]);
+        entity.maVolumeList = listOrEmpty(mMaVolumeList[slot]);
+        entity.rsiList = listOrEmpty(mRsiList[slot]);
+        entity.wrList = listOrEmpty(mWrList[slot]);
+        return entity;
+    }
+
+    // Bars decoded from primitive payloads carry no lists. Each column only ever holds the
+    // matching list field written by writeSlot, so the cast cannot fail
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> listOrEmpty(Object list) {
+        return list != null ? (List<T>) list : Collections.<T>emptyList();
+    }
+
+    /**
+     * Copy the entity into the bar at index without materializing the old value
+     */
+    public void write(int index, KLineEntity entity) {
+        writeSlot(slot(index), entity);
+        markChanged(index);
+    }
+
+    @Override
+    public KLineEntity set(int index, KLineEntity entity) {
+        KLineEntity previous = get(index);
+        write(index, entity);
+        return previous;
+    }
+
+    public float getFloat(int column, int index) {
+        return mFloatColumns[column][slot(index)];
+    }
+
+    public void setFloat(int column, int index, float value) {
+        mFloatColumns[column][slot(index)] = value;
+        markChanged(index);
+    }
+
+    /**
+     * Number of bars trimmed off the head, see {@link #takeChangedFrom()}
+     */
+    public long getRemovedCount() {
+        return mRemovedCount;
+    }
+
+    /**
+     * Lowest index + {@link #getRemovedCount()} whose bar was written, inserted or shifted since the last call,
+     * Long.MAX_VALUE when nothing changed. Lets a derived index refresh only the changed suffix.
+     */
+    public long takeChangedFrom() {
+        long changedFrom = mChangedFrom;
+        mChangedFrom = Long.MAX_VALUE;
+        return changedFrom;
+    }
+
+    private void markChanged(int index) {
+        mChangedFrom = Math.min(mChangedFrom, mRemovedCount + index);
+    }
+
+    public long getTime(int index) {
+        return mTime[slot(index)];
+    }
+
+    /**
+     * Binary search over the time column, the bars are in ascending time order
+     *
+     * @return index of the bar, or (-(insertion point) - 1) like {@link java.util.Arrays#binarySearch}
+     */
+    public int indexOfTime(long time) {
+        int low = mHead;
+        int high = mHead + mSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = mTime[middle];
+            if (value < time) {
+                low = middle + 1;
+            } else if (value > time) {
+                high = middle - 1;
+            } else {
+                return middle - mHead;
+            }
+        }
+        return -(low - mHead) - 1;
+    }
+
+    /**
+     * {@link #indexOfTime(long)} for any time ordered list of bars
+     */
+    public static int indexOfTime(List<KLineEntity> dataList, long time) {
+        if (dataList instanceof KLineColumnStore) {
+            return ((KLineColumnStore) dataList).indexOfTime(time);
+        }
+        int low = 0;
+        int high = dataList.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = dataList.get(middle).time;
+            if (value < time) {
+                low = middle + 1;
+            } else if (value > time) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    @Override
+    public boolean add(KLineEntity entity) {
+        ensureTail(1);
+        writeSlot(mHead + mSize, entity);
+        markChanged(mSize);
+        mSize++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, KLineEntity entity) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        if (index < mSize / 2 && mHead > 0) {
+            // Closer to the head and there is room in front, move the leading bars left
+            moveSlots(mHead, mHead - 1, index);
+            mHead--;
+        } else {
+            ensureTail(1);
+            moveSlots(mHead + index, mHead + index + 1, mSize - index);
+        }
+        mSize++;
+        writeSlot(mHead + index, entity);
+        markChanged(index);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends KLineEntity> collection) {
+        int count = collection.size();
+        if (count == 0) {
+            return false;
+        }
+        ensureTail(count);
+        writeSlots(mHead + mSize, collection);
+        markChanged(mSize);
+        mSize += count;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Append count bars straight from primitive buffers, the indicator values start at 0
+     */
+    public void addColumns(LongBuffer time, FloatBuffer open, FloatBuffer high, FloatBuffer low,
+                           FloatBuffer close, FloatBuffer volume, int count) {
+        if (count <= 0) {
+            return;
+        }
+        ensureTail(count);
+        int slot = mHead + mSize;
+        for (float[] column : mFloatColumns) {
+            Arrays.fill(column, slot, slot + count, 0f);
+        }
+        time.get(mTime, slot, count);
+        open.get(mFloatColumns[OPEN], slot, count);
+        high.get(mFloatColumns[HIGH], slot, count);
+        low.get(mFloatColumns[LOW], slot, count);
+        close.get(mFloatColumns[CLOSE], slot, count);
+        volume.get(mFloatColumns[VOLUME], slot, count);
+        float[] id = mFloatColumns[ID];
+        for (int i = slot; i < slot + count; i++) {
+            // Same value packModel derives from an integral timestamp
+            id[i] = (int) mTime[i];
+        }
+        clearSlots(slot, count);
+        markChanged(mSize);
+        mSize += count;
+        modCount++;
+    }
+
+    /**
+     * Inserting at the head writes into the free slots in front of it, so prepending k bars is amortized O(k)
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends KLineEntity> collection) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        if (index == mSize) {
+            return addAll(collection);
+        }
+        int count = collection.size();
+        if (count == 0) {
+            return false;
+        }
+        if (index == 0) {
+            ensureHead(count);
+            mHead -= count;
+        } else {
+            ensureTail(count);
+            moveSlots(mHead + index, mHead + index + count, mSize - index);
+        }
+        writeSlots(mHead + index, collection);
+        markChanged(index);
+        mSize += count;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public KLineEntity remove(int index) {
+        KLineEntity previous = get(index);
+        if (index < mSize / 2) {
+            moveSlots(mHead, mHead + 1, index);
+            clearSlots(mHead, 1);
+            mHead++;
+        } else {
+            moveSlots(mHead + index + 1, mHead + index, mSize - index - 1);
+            clearSlots(mHead + mSize - 1, 1);
+        }
+        if (index == 0) {
+            mRemovedCount++;
+        } else {
+            markChanged(index);
+        }
+        mSize--;
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * Trimming either end only moves the head or the size, used by subList(from, to).clear()
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + mSize);
+        }
+        int count = toIndex - fromIndex;
+        if (count == 0) {
+            return;
+        }
+        if (fromIndex < mSize - toIndex) {
+            moveSlots(mHead, mHead + count, fromIndex);
+            clearSlots(mHead, count);
+            mHead += count;
+        } else {
+            moveSlots(mHead + toIndex, mHead + fromIndex, mSize - toIndex);
+            clearSlots(mHead + mSize - count, count);
+        }
+        if (fromIndex == 0) {
+            mRemovedCount += count;
+        } else {
+            markChanged(fromIndex);
+        }
+        mSize -= count;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        clearSlots(mHead, mSize);
+        mRemovedCount += mSize;
+        mHead = 0;
+        mSize = 0;
+        modCount++;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return mHead + index;
+    }
+
+    private void writeSlot(int slot, KLineEntity entity) {
+        float[][] columns = mFloatColumns;
+        columns[ID][slot] = entity.id;
+        columns[OPEN][slot] = entity.Open;
+        columns[HIGH][slot] = entity.High;
+        columns[LOW][slot] = entity.Low;
+        columns[CLOSE][slot] = entity.Close;
+        columns[VOLUME][slot] = entity.Volume;
+        columns[MA5][slot] = entity.MA5Price;
+        columns[MA10][slot] = entity.MA10Price;
+        columns[MA20][slot] = entity.MA20Price;
+        columns[MA30][slot] = entity.MA30Price;
+        columns[MA60][slot] = entity.MA60Price;
+        columns[DEA][slot] = entity.dea;
+        columns[DIF][slot] = entity.dif;
+        columns[MACD][slot] = entity.macd;
+        columns[K][slot] = entity.k;
+        columns[D][slot] = entity.d;
+        columns[J][slot] = entity.j;
+        columns[R][slot] = entity.r;
+        columns[RSI][slot] = entity.rsi;
+        columns[UP][slot] = entity.up;
+        columns[MB][slot] = entity.mb;
+        columns[DN][slot] = entity.dn;
+        columns[MA5_VOLUME][slot] = entity.MA5Volume;
+        columns[MA10_VOLUME][slot] = entity.MA10Volume;
+        mTime[slot] = entity.time;
+        mDate[slot] = entity.Date;
+        mSelectedItemList[slot] = entity.selectedItemList;
+        mMaList[slot] = entity.maList;
+        mMaVolumeList[slot] = entity.maVolumeList;
+        mRsiList[slot] = entity.rsiList;
+        mWrList[slot] = entity.wrList;
+    }
+
+    // Another store is copied column by column, without materializing its bars
+    private void writeSlots(int slot, Collection<? extends KLineEntity> collection) {
+        if (collection instanceof KLineColumnStore && collection != this) {
+            KLineColumnStore source = (KLineColumnStore) collection;
+            int from = source.mHead;
+            int count = source.mSize;
+            for (int i = 0; i < FLOAT_COLUMN_COUNT; i++) {
+                System.arraycopy(source.mFloatColumns[i], from, mFloatColumns[i], slot, count);
+            }
+            System.arraycopy(source.mTime, from, mTime, slot, count);
+            System.arraycopy(source.mDate, from, mDate, slot, count);
+            System.arraycopy(source.mSelectedItemList, from, mSelectedItemList, slot, count);
+            System.arraycopy(source.mMaList, from, mMaList, slot, count);
+            System.arraycopy(source.mMaVolumeList, from, mMaVolumeList, slot, count);
+            System.arraycopy(source.mRsiList, from, mRsiList, slot, count);
+            System.arraycopy(source.mWrList, from, mWrList, slot, count);
+            return;
+        }
+        for (KLineEntity entity : collection) {
+            writeSlot(slot++, entity);
+        }
+    }
+
+    private void moveSlots(int from, int to, int count) {
+        if (count <= 0 || from == to) {
+            return;
+        }
+        for (float[] column : mFloatColumns) {
+            System.arraycopy(column, from, column, to, count);
+        }
+        System.arraycopy(mTime, from, mTime, to, count);
+        System.arraycopy(mDate, from, mDate, to, count);
+        System.arraycopy(mSelectedItemList, from, mSelectedItemList, to, count);
+        System.arraycopy(mMaList, from, mMaList, to, count);
+        System.arraycopy(mMaVolumeList, from, mMaVolumeList, to, count);
+        System.arraycopy(mRsiList, from, mRsiList, to, count);
+        System.arraycopy(mWrList, from, mWrList, to, count);
+    }
+
+    // Drop the references so evicted bars can be collected
+    private void clearSlots(int from, int count) {
+        for (int slot = from; slot < from + count; slot++) {
+            mDate[slot] = null;
+            mSelectedItemList[slot] = null;
+            mMaList[slot] = null;
+            mMaVolumeList[slot] = null;
+            mRsiList[slot] = null;
+            mWrList[slot] = null;
+        }
+    }
+
+    /**
+     * Make room for count more bars after the tail
+     */
+    private void ensureTail(int count) {
+        int capacity = mTime.length;
+        if (mHead + mSize + count <= capacity) {
+            return;
+        }
+        int required = mSize + count;
+        if (required <= capacity / 2) {
+            // Mostly free space in front, slide the bars back to the start
+            moveSlots(mHead, 0, mSize);
+            clearSlots(Math.max(mSize, mHead), Math.min(mHead, mSize));
+            mHead = 0;
+            return;
+        }
+        resize(Math.max(required + (required >> 1), MIN_CAPACITY), 0);
+    }
+
+    /**
+     * Make room for count more bars before the head
+     */
+    private void ensureHead(int count) {
+        if (mHead >= count) {
+            return;
+        }
+        int required = mSize + count;
+        int capacity = Math.max(required + (required >> 1), MIN_CAPACITY);
+        // Split the spare slots between both ends, so repeated prepends keep finding room
+        resize(capacity, count + (capacity - required) / 2);
+    }
+
+    private void resize(int capacity, int head) {
+        float[][] columns = new float[FLOAT_COLUMN_COUNT][];
+        for (int i = 0; i < FLOAT_COLUMN_COUNT; i++) {
+            columns[i] = new float[capacity];
+            System.arraycopy(mFloatColumns[i], mHead, columns[i], head, mSize);
+        }
+        long[] time = new long[capacity];
+        System.arraycopy(mTime, mHead, time, head, mSize);
+        mTime = time;
+        mFloatColumns = columns;
+        mDate = copyColumn(mDate, new String[capacity], head);
+        mSelectedItemList = copyColumn(mSelectedItemList, new Object[capacity], head);
+        mMaList = copyColumn(mMaList, new Object[capacity], head);
+        mMaVolumeList = copyColumn(mMaVolumeList, new Object[capacity], head);
+        mRsiList = copyColumn(mRsiList, new Object[capacity], head);
+        mWrList = copyColumn(mWrList, new Object[capacity], head);
+        mHead = head;
+    }
+
+    private <T> T[] copyColumn(T[] source, T[] target, int head) {
+        System.arraycopy(source, mHead, target, head, mSize);
+        return target;
+    }
+
+    private void allocate(int capacity) {
+        for (int i = 0; i < FLOAT_COLUMN_COUNT; i++) {
+            mFloatColumns[i] = new float[capacity];
+        }
+        mTime = new long[capacity];
+        mDate = new String[capacity];
+        mSelectedItemList = new Object[capacity];
+        mMaList = new Object[capacity];
+        mMaVolumeList = new Object[capacity];
+        mRsiList = new Object[capacity];
+        mWrList = new Object[capacity];
+        mHead = 0;
+        mSize = 0;
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.fujianlian.klinechart;
 
+import com.github.fujianlian.klinechart.base.IChartDraw;
 import com.github.fujianlian.klinechart.entity.IKLine;
 
 import java.util.List;
@@ -135,6 +136,7 @@ public class KLineEntity implements IKLine {
     public List<Map<String, Object>> selectedItemList = new ArrayList<>();
 
     public float id;
+    public long time;
     public String Date;
     public float Open;
     public float High;
@@ -207,5 +209,24 @@ public class KLineEntity implements IKLine {
         return min == Float.MAX_VALUE ? 0f : min;
     }
 
+    /**
+     * Widen range by targetListISMax(itemList, true) and targetListISMax(itemList, false) in one pass
+     */
+    public void extendTargetListRange(List<HTKLineTargetItem> itemList, float[] range) {
+        float max = Float.MIN_VALUE;
+        float min = Float.MAX_VALUE;
+        // Indexed loop, a for-each would allocate an iterator for every bar
+        for (int i = 0, size = itemList.size(); i < size; i++) {
+            float value = itemList.get(i).value;
+            if (Float.isNaN(value)) {
+                continue;
+            }
+            max = Math.max(max, value);
+            min = Math.min(min, value);
+        }
+        range[IChartDraw.RANGE_MAX] = Math.max(range[IChartDraw.RANGE_MAX], max == Float.MIN_VALUE ? 0f : max);
+        range[IChartDraw.RANGE_MIN] = Math.min(range[IChartDraw.RANGE_MIN], min == Float.MAX_VALUE ? 0f : min);
+    }
+
 
 }
@@ -0,0 +1,165 @@
+package com.github.fujianlian.klinechart;
+
+import com.github.fujianlian.klinechart.base.IChartDraw;
+import com.github.fujianlian.klinechart.utils.RangeExtremaTree;
+
+/**
+ * 可见区域最大值/最小值索引
+ * Keeps the per-bar {@link IChartDraw#extendRange} of the main, volume and child draws, and the
+ * high/low of every bar, in {@link RangeExtremaTree}s so calculateValue answers any visible
+ * range in O(log n) instead of walking every visible bar each frame. After the first build
+ * only the bars reported by {@link KLineColumnStore#takeChangedFrom()} are refreshed.
+ */
+public class KLineExtremaIndex {
+
+    public static final int MAIN = 0;
+    public static final int HIGH_LOW = 1;
+    public static final int VOLUME = 2;
+    public static final int CHILD = 3;
+
+    private static final int CHANNEL_COUNT = 4;
+
+    private static final int MIN_CAPACITY = 64;
+
+    private final RangeExtremaTree[] mTrees = new RangeExtremaTree[CHANNEL_COUNT];
+
+    private final IChartDraw[] mDraws = new IChartDraw[CHANNEL_COUNT];
+
+    // Draw state the per-bar values depend on, e.g. MA or BOLL for the main draw
+    private final Object[] mModes = new Object[CHANNEL_COUNT];
+
+    private final boolean[] mBuilt = new boolean[CHANNEL_COUNT];
+
+    private final KLineEntity mCursor = new KLineEntity();
+
+    private final float[] mRange = new float[2];
+
+    private KLineColumnStore mStore;
+
+    private int mCapacity;
+
+    // Store position (index + removed count) of leaf 0
+    private long mLeafBase;
+
+    private long mRemovedCount;
+
+    // Store position right after the last synced bar
+    private long mSyncedEnd;
+
+    private float mMax;
+
+    private float mMin;
+
+    private int mMaxIndex;
+
+    private int mMinIndex;
+
+    public KLineExtremaIndex() {
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            mTrees[i] = new RangeExtremaTree();
+        }
+    }
+
+    /**
+     * Bring every built channel up to date with the store, call before querying
+     */
+    public void sync(KLineColumnStore store) {
+        long changedFrom = store.takeChangedFrom();
+        long removedCount = store.getRemovedCount();
+        long end = removedCount + store.size();
+        mRemovedCount = removedCount;
+        if (store != mStore || removedCount < mLeafBase || end > mLeafBase + mCapacity) {
+            // New data set, bars inserted at the head or no room left after the tail
+            mStore = store;
+            mLeafBase = removedCount;
+            mCapacity = Math.max(MIN_CAPACITY, store.size() * 2);
+            invalidate();
+        } else {
+            changedFrom = Math.max(Math.min(changedFrom, mSyncedEnd), removedCount);
+            if (changedFrom < end) {
+                for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+                    if (mBuilt[channel]) {
+                        fill(channel, changedFrom, end);
+                    }
+                }
+            }
+        }
+        mSyncedEnd = end;
+    }
+
+    /**
+     * Drop every channel, they are rebuilt on the next query
+     */
+    public void invalidate() {
+        for (int channel = 0; channel < CHANNEL_COUNT; channel++) {
+            mBuilt[channel] = false;
+            mDraws[channel] = null;
+            mModes[channel] = null;
+        }
+    }
+
+    /**
+     * Extremes of the bars in [from, to] after {@link #sync(KLineColumnStore)}, read them with the getters
+     *
+     * @param channel one of MAIN, HIGH_LOW, VOLUME, CHILD
+     * @param draw    draw whose extendRange is indexed, ignored for HIGH_LOW
+     * @param mode    draw state the values depend on, the channel is rebuilt when it changes
+     */
+    public void query(int channel, IChartDraw draw, Object mode, int from, int to) {
+        if (!mBuilt[channel] || mDraws[channel] != draw || mModes[channel] != mode) {
+            mDraws[channel] = draw;
+            mModes[channel] = mode;
+            mTrees[channel].reset(mCapacity);
+            mBuilt[channel] = true;
+            fill(channel, mRemovedCount, mSyncedEnd);
+        }
+        RangeExtremaTree tree = mTrees[channel];
+        int offset = (int) (mRemovedCount - mLeafBase);
+        tree.query(from + offset, to + offset);
+        mMax = tree.getMax();
+        mMin = tree.getMin();
+        mMaxIndex = tree.getMaxLeaf() - offset;
+        mMinIndex = tree.getMinLeaf() - offset;
+    }
+
+    public float getMax() {
+        return mMax;
+    }
+
+    public float getMin() {
+        return mMin;
+    }
+
+    /**
+     * Leftmost bar holding the max of the last query
+     */
+    public int getMaxIndex() {
+        return mMaxIndex;
+    }
+
+    /**
+     * Leftmost bar holding the min of the last query
+     */
+    public int getMinIndex() {
+        return mMinIndex;
+    }
+
+    private void fill(int channel, long from, long to) {
+        RangeExtremaTree tree = mTrees[channel];
+        IChartDraw draw = mDraws[channel];
+        KLineEntity cursor = mCursor;
+        for (long position = from; position < to; position++) {
+            mStore.read((int) (position - mRemovedCount), cursor);
+            int leaf = (int) (position - mLeafBase);
+            if (channel == HIGH_LOW) {
+                tree.set(leaf, cursor.getHighPrice(), cursor.getLowPrice());
+            } else {
+                mRange[IChartDraw.RANGE_MAX] = Float.NEGATIVE_INFINITY;
+                mRange[IChartDraw.RANGE_MIN] = Float.POSITIVE_INFINITY;
+                draw.extendRange(cursor, mRange);
+                tree.set(leaf, mRange[IChartDraw.RANGE_MAX], mRange[IChartDraw.RANGE_MIN]);
+            }
+        }
+        tree.rebuild((int) (from - mLeafBase), (int) (to - mLeafBase));
+    }
+}
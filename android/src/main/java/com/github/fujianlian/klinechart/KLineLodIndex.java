@@ -0,0 +1,351 @@
+package com.github.fujianlian.klinechart;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 缩小时的分桶数据
+ * When many bars fall into one pixel column, drawK draws buckets of a few zoom tiers instead of
+ * every bar, so a fully zoomed-out chart costs about the screen width. Each bucket keeps a bar
+ * (first open, max high, min low, last close, summed volume, lines at their last value) and the
+ * min and max of every indicator line, drawn as a vertical envelope (M4-style decimation).
+ * Volume moving averages are scaled by the bars in the bucket so they stay comparable with the
+ * summed volume. Tiers are built on first use and after a tail change only the last buckets are
+ * rebuilt, anything else drops them.
+ */
+public class KLineLodIndex {
+
+    // Bars per bucket of each tier
+    private static final int[] TIER_SIZES = {8, 32, 128, 512, 2048};
+
+    private static final class Tier {
+
+        final int size;
+
+        final KLineColumnStore bars = new KLineColumnStore();
+
+        final KLineColumnStore mins = new KLineColumnStore();
+
+        final KLineColumnStore maxs = new KLineColumnStore();
+
+        // Bucket number (store position / size) of bucket 0
+        long baseBucket;
+
+        boolean built;
+
+        Tier(int size) {
+            this.size = size;
+        }
+
+        void truncate(int bucket) {
+            int count = bars.size();
+            if (bucket < count) {
+                bars.subList(bucket, count).clear();
+                mins.subList(bucket, count).clear();
+                maxs.subList(bucket, count).clear();
+            }
+        }
+    }
+
+    private final Tier[] mTiers = new Tier[TIER_SIZES.length];
+
+    private final KLineEntity mCursor = new KLineEntity();
+
+    private final KLineEntity mBar = new KLineEntity();
+
+    private final KLineEntity mMin = new KLineEntity();
+
+    private final KLineEntity mMax = new KLineEntity();
+
+    private List<KLineEntity> mData;
+
+    private long mRemovedCount;
+
+    private int mSyncedSize;
+
+    // Lowest store position changed since the last sync, Long.MAX_VALUE when none
+    private long mChangedFrom = Long.MAX_VALUE;
+
+    private Tier mTier;
+
+    public KLineLodIndex() {
+        for (int i = 0; i < TIER_SIZES.length; i++) {
+            mTiers[i] = new Tier(TIER_SIZES[i]);
+        }
+    }
+
+    /**
+     * Bars per bucket to draw with, 1 when bars are wide enough to be drawn one by one
+     *
+     * @param barsPerPixel bars sharing one pixel column
+     */
+    public static int chooseBucketSize(float barsPerPixel) {
+        int bucketSize = 1;
+        for (int size : TIER_SIZES) {
+            if (size <= barsPerPixel) {
+                bucketSize = size;
+            }
+        }
+        return bucketSize;
+    }
+
+    /**
+     * Drop every tier, they are rebuilt on the next sync
+     */
+    public void invalidate() {
+        for (Tier tier : mTiers) {
+            tier.built = false;
+        }
+        mData = null;
+        mTier = null;
+        mChangedFrom = Long.MAX_VALUE;
+    }
+
+    /**
+     * Bars from fromIndex on were updated or appended
+     */
+    public void markChanged(List<KLineEntity> data, int fromIndex) {
+        mChangedFrom = Math.min(mChangedFrom, removedCountOf(data) + Math.max(0, fromIndex));
+    }
+
+    /**
+     * Bring the tier of bucketSize up to date with data, read it with the getters afterwards
+     */
+    public void sync(List<KLineEntity> data, int bucketSize) {
+        int size = data.size();
+        long removedCount = removedCountOf(data);
+        if (data != mData || removedCount != mRemovedCount || size < mSyncedSize) {
+            invalidate();
+            mData = data;
+            mRemovedCount = removedCount;
+        } else if (size > mSyncedSize) {
+            // Appended bars change the last partial bucket
+            mChangedFrom = Math.min(mChangedFrom, removedCount + mSyncedSize);
+        }
+        if (mChangedFrom != Long.MAX_VALUE) {
+            for (Tier tier : mTiers) {
+                if (tier.built) {
+                    tier.truncate((int) Math.max(0, Math.floorDiv(mChangedFrom, tier.size) - tier.baseBucket));
+                }
+            }
+            mChangedFrom = Long.MAX_VALUE;
+        }
+        mSyncedSize = size;
+
+        Tier tier = mTiers[0];
+        for (Tier candidate : mTiers) {
+            if (candidate.size == bucketSize) {
+                tier = candidate;
+            }
+        }
+        if (!tier.built) {
+            tier.bars.clear();
+            tier.mins.clear();
+            tier.maxs.clear();
+            tier.baseBucket = Math.floorDiv(removedCount, tier.size);
+            tier.built = true;
+        }
+        mTier = tier;
+        int bucketCount = size == 0 ? 0 : bucketOf(size - 1) + 1;
+        for (int bucket = tier.bars.size(); bucket < bucketCount; bucket++) {
+            aggregate(data, getFirstIndex(bucket), getLastIndex(bucket));
+            tier.bars.add(mBar);
+            tier.mins.add(mMin);
+            tier.maxs.add(mMax);
+        }
+    }
+
+    private void aggregate(List<KLineEntity> data, int from, int to) {
+        KLineEntity first = read(data, from, mCursor);
+        float open = first.Open;
+        copyLines(first, mMin);
+        copyLines(first, mMax);
+        float high = first.High;
+        float low = first.Low;
+        float volume = 0;
+        float macd = 0;
+        KLineEntity point = first;
+        for (int i = from; i <= to; i++) {
+            point = i == from ? first : read(data, i, mCursor);
+            if (i > from) {
+                fold(mMin, point, false);
+                fold(mMax, point, true);
+            }
+            high = Math.max(high, point.High);
+            low = Math.min(low, point.Low);
+            if (!Float.isNaN(point.Volume)) {
+                volume += point.Volume;
+            }
+            if (Math.abs(point.macd) > Math.abs(macd)) {
+                macd = point.macd;
+            }
+        }
+        // Lines of the bar continue from the last bar of the bucket
+        copyLines(point, mBar);
+        mBar.Open = open;
+        mBar.High = high;
+        mBar.Low = low;
+        mBar.Close = point.Close;
+        mBar.macd = macd;
+        int count = to - from + 1;
+        scaleVolume(mBar, volume, count);
+        scaleVolume(mMin, volume, count);
+        scaleVolume(mMax, volume, count);
+        mMin.High = mMax.High = high;
+        mMin.Low = mMax.Low = low;
+        mMin.Open = mMax.Open = open;
+        mMin.Close = mMax.Close = point.Close;
+    }
+
+    private static void scaleVolume(KLineEntity entity, float volume, int count) {
+        entity.Volume = volume;
+        entity.MA5Volume *= count;
+        entity.MA10Volume *= count;
+        for (int i = 0; i < entity.maVolumeList.size(); i++) {
+            entity.maVolumeList.get(i).value *= count;
+        }
+    }
+
+    private static KLineEntity read(List<KLineEntity> data, int index, KLineEntity cursor) {
+        if (data instanceof KLineColumnStore) {
+            return ((KLineColumnStore) data).read(index, cursor);
+        }
+        return data.get(index);
+    }
+
+    private static long removedCountOf(List<KLineEntity> data) {
+        return data instanceof KLineColumnStore ? ((KLineColumnStore) data).getRemovedCount() : 0;
+    }
+
+    // Copy the bar, with lists of its own so folding and scaling never touch the original items
+    private static void copyLines(KLineEntity point, KLineEntity target) {
+        target.id = point.id;
+        target.time = point.time;
+        target.Date = point.Date;
+        target.Volume = point.Volume;
+        target.MA5Price = point.MA5Price;
+        target.MA10Price = point.MA10Price;
+        target.MA20Price = point.MA20Price;
+        target.MA30Price = point.MA30Price;
+        target.MA60Price = point.MA60Price;
+        target.dea = point.dea;
+        target.dif = point.dif;
+        target.macd = point.macd;
+        target.k = point.k;
+        target.d = point.d;
+        target.j = point.j;
+        target.r = point.r;
+        target.rsi = point.rsi;
+        target.up = point.up;
+        target.mb = point.mb;
+        target.dn = point.dn;
+        target.MA5Volume = point.MA5Volume;
+        target.MA10Volume = point.MA10Volume;
+        target.selectedItemList = point.selectedItemList;
+        target.maList = copyItems(point.maList);
+        target.maVolumeList = copyItems(point.maVolumeList);
+        target.rsiList = copyItems(point.rsiList);
+        target.wrList = copyItems(point.wrList);
+    }
+
+    private static List<HTKLineTargetItem> copyItems(List<HTKLineTargetItem> itemList) {
+        if (itemList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<HTKLineTargetItem> copy = new ArrayList<>(itemList.size());
+        for (int i = 0; i < itemList.size(); i++) {
+            HTKLineTargetItem item = itemList.get(i);
+            copy.add(new HTKLineTargetItem(item.title, item.value, item.isSelected(), item.index));
+        }
+        return copy;
+    }
+
+    private static void fold(KLineEntity target, KLineEntity point, boolean max) {
+        target.MA5Price = pick(target.MA5Price, point.MA5Price, max);
+        target.MA10Price = pick(target.MA10Price, point.MA10Price, max);
+        target.MA20Price = pick(target.MA20Price, point.MA20Price, max);
+        target.MA30Price = pick(target.MA30Price, point.MA30Price, max);
+        target.MA60Price = pick(target.MA60Price, point.MA60Price, max);
+        target.dea = pick(target.dea, point.dea, max);
+        target.dif = pick(target.dif, point.dif, max);
+        target.macd = pick(target.macd, point.macd, max);
+        target.k = pick(target.k, point.k, max);
+        target.d = pick(target.d, point.d, max);
+        target.j = pick(target.j, point.j, max);
+        target.r = pick(target.r, point.r, max);
+        target.rsi = pick(target.rsi, point.rsi, max);
+        target.up = pick(target.up, point.up, max);
+        target.mb = pick(target.mb, point.mb, max);
+        target.dn = pick(target.dn, point.dn, max);
+        target.MA5Volume = pick(target.MA5Volume, point.MA5Volume, max);
+        target.MA10Volume = pick(target.MA10Volume, point.MA10Volume, max);
+        foldItems(target.maList, point.maList, max);
+        foldItems(target.maVolumeList, point.maVolumeList, max);
+        foldItems(target.rsiList, point.rsiList, max);
+        foldItems(target.wrList, point.wrList, max);
+    }
+
+    private static void foldItems(List<HTKLineTargetItem> targetList, List<HTKLineTargetItem> itemList, boolean max) {
+        int count = Math.min(targetList.size(), itemList.size());
+        for (int i = 0; i < count; i++) {
+            HTKLineTargetItem target = targetList.get(i);
+            target.value = pick(target.value, itemList.get(i).value, max);
+        }
+    }
+
+    // NaN means no value yet, 0 is kept as the draws treat it as not drawn
+    private static float pick(float current, float value, boolean max) {
+        if (Float.isNaN(value) || value == 0) {
+            return current;
+        }
+        if (Float.isNaN(current) || current == 0) {
+            return value;
+        }
+        return max ? Math.max(current, value) : Math.min(current, value);
+    }
+
+    /**
+     * Bars per bucket of the synced tier
+     */
+    public int getBucketSize() {
+        return mTier.size;
+    }
+
+    public int getBucketCount() {
+        return mTier.bars.size();
+    }
+
+    /**
+     * Bucket holding the bar at index
+     */
+    public int bucketOf(int index) {
+        return (int) (Math.floorDiv(index + mRemovedCount, mTier.size) - mTier.baseBucket);
+    }
+
+    /**
+     * First bar index in the bucket
+     */
+    public int getFirstIndex(int bucket) {
+        return (int) Math.max(0, (bucket + mTier.baseBucket) * mTier.size - mRemovedCount);
+    }
+
+    /**
+     * Last bar index in the bucket
+     */
+    public int getLastIndex(int bucket) {
+        return (int) Math.min(mSyncedSize - 1, (bucket + mTier.baseBucket + 1) * mTier.size - mRemovedCount - 1);
+    }
+
+    public KLineEntity readBar(int bucket, KLineEntity entity) {
+        return mTier.bars.read(bucket, entity);
+    }
+
+    public KLineEntity readMin(int bucket, KLineEntity entity) {
+        return mTier.mins.read(bucket, entity);
+    }
+
+    public KLineEntity readMax(int bucket, KLineEntity entity) {
+        return mTier.maxs.read(bucket, entity);
+    }
+}
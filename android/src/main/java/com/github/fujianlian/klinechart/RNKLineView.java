@@ -19,8 +19,6 @@ import com.github.fujianlian.klinechart.formatter.ValueFormatter;
 import javax.annotation.Nonnull;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.parser.Feature;
 
 public class RNKLineView extends SimpleViewManager<HTKLineContainerView> {
 
@@ -34,6 +32,10 @@ public class RNKLineView extends SimpleViewManager<HTKLineContainerView> {
 
 	public static String onChartTouchKey = "onChartTouch";
 
+	public static String onRenderStatsKey = "onRenderStats";
+
+	public static String onOrderLinesKey = "onOrderLines";
+
     @Nonnull
     @Override
     public String getName() {
@@ -54,7 +56,9 @@ public class RNKLineView extends SimpleViewManager<HTKLineContainerView> {
 				onScrollLeftKey, MapBuilder.of("registrationName", onScrollLeftKey),
 				onDrawItemCompleteKey, MapBuilder.of("registrationName", onDrawItemCompleteKey),
 				onDrawPointCompleteKey, MapBuilder.of("registrationName", onDrawPointCompleteKey),
-				onChartTouchKey, MapBuilder.of("registrationName", onChartTouchKey)
+				onChartTouchKey, MapBuilder.of("registrationName", onChartTouchKey),
+				onRenderStatsKey, MapBuilder.of("registrationName", onRenderStatsKey),
+				onOrderLinesKey, MapBuilder.of("registrationName", onOrderLinesKey)
 		);
 	}
 
@@ -68,33 +72,34 @@ public class RNKLineView extends SimpleViewManager<HTKLineContainerView> {
             return;
         }
 
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                int disableDecimalFeature = JSON.DEFAULT_PARSER_FEATURE & ~Feature.UseBigDecimal.getMask();
-                Map optionMap = (Map)JSON.parse(optionList, disableDecimalFeature);
-                containerView.configManager.reloadOptionList(optionMap);
-                containerView.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        containerView.reloadConfigManager();
-                    }
-                });
-            }
-        }).start();
+        // Coalesced on the view's own worker, only the newest optionList is applied
+        containerView.optionLoader.load(optionList);
+    }
+
+    @Override
+    public void onDropViewInstance(@Nonnull HTKLineContainerView containerView) {
+        super.onDropViewInstance(containerView);
+        containerView.optionLoader.release();
+        containerView.tickCoalescer.release();
     }
 
     @Override
     public Map<String, Integer> getCommandsMap() {
-        return MapBuilder.of(
-            "updateLastCandlestick", 1,
-            "addCandlesticksAtTheEnd", 2,
-            "addCandlesticksAtTheStart", 3,
-            "addOrderLine", 4,
-            "removeOrderLine", 5,
-            "updateOrderLine", 6,
-            "getOrderLines", 7
-        );
+        return MapBuilder.<String, Integer>builder()
+            .put("updateLastCandlestick", 1)
+            .put("addCandlesticksAtTheEnd", 2)
+            .put("addCandlesticksAtTheStart", 3)
+            .put("addOrderLine", 4)
+            .put("removeOrderLine", 5)
+            .put("updateOrderLine", 6)
+            .put("getOrderLines", 7)
+            .put("getRenderStats", 8)
+            .put("applyOrderLineDiff", 9)
+            .put("replaceOrderLines", 10)
+            .put("updateCandlesticks", 11)
+            .put("addCandlestickBufferAtTheEnd", 12)
+            .put("addCandlestickBufferAtTheStart", 13)
+            .build();
     }
 
     @Override
@@ -117,6 +122,19 @@ public class RNKLineView extends SimpleViewManager<HTKLineContainerView> {
                     android.util.Log.w("RNKLineView", "updateLastCandlestick: args is null or empty");
                 }
                 break;
+            case "updateCandlesticks":
+                android.util.Log.d("RNKLineView", "Processing updateCandlesticks command");
+                if (args != null && args.size() > 0) {
+                    try {
+                        containerView.updateCandlesticks(args.getArray(0));
+                    } catch (Exception e) {
+                        android.util.Log.e("RNKLineView", "Error in updateCandlesticks command", e);
+                        e.printStackTrace();
+                    }
+                } else {
+                    android.util.Log.w("RNKLineView", "updateCandlesticks: args is null or empty");
+                }
+                break;
             case "addCandlesticksAtTheEnd":
                 android.util.Log.d("RNKLineView", "Processing addCandlesticksAtTheEnd command");
                 if (args != null && args.size() > 0) {
@@ -147,6 +165,32 @@ public class RNKLineView extends SimpleViewManager<HTKLineContainerView> {
                     android.util.Log.w("RNKLineView", "addCandlesticksAtTheStart: args is null or empty");
                 }
                 break;
+            case "addCandlestickBufferAtTheEnd":
+                android.util.Log.d("RNKLineView", "Processing addCandlestickBufferAtTheEnd command");
+                if (args != null && args.size() > 0) {
+                    try {
+                        containerView.addCandlestickBufferAtTheEnd(args.getString(0));
+                    } catch (Exception e) {
+                        android.util.Log.e("RNKLineView", "Error in addCandlestickBufferAtTheEnd command", e);
+                        e.printStackTrace();
+                    }
+                } else {
+                    android.util.Log.w("RNKLineView", "addCandlestickBufferAtTheEnd: args is null or empty");
+                }
+                break;
+            case "addCandlestickBufferAtTheStart":
+                android.util.Log.d("RNKLineView", "Processing addCandlestickBufferAtTheStart command");
+                if (args != null && args.size() > 0) {
+                    try {
+                        containerView.addCandlestickBufferAtTheStart(args.getString(0));
+                    } catch (Exception e) {
+                        android.util.Log.e("RNKLineView", "Error in addCandlestickBufferAtTheStart command", e);
+                        e.printStackTrace();
+                    }
+                } else {
+                    android.util.Log.w("RNKLineView", "addCandlestickBufferAtTheStart: args is null or empty");
+                }
+                break;
             case "addOrderLine":
                 android.util.Log.d("RNKLineView", "Processing addOrderLine command");
                 if (args != null && args.size() > 0) {
@@ -197,17 +241,75 @@ public class RNKLineView extends SimpleViewManager<HTKLineContainerView> {
             case "getOrderLines":
                 android.util.Log.d("RNKLineView", "Processing getOrderLines command");
                 try {
-                    android.util.Log.d("RNKLineView", "Calling containerView.getOrderLines");
-                    containerView.getOrderLines();
+                    android.util.Log.d("RNKLineView", "Calling containerView.emitOrderLines");
+                    containerView.emitOrderLines(containerView.getOrderLineSnapshot(), true);
                 } catch (Exception e) {
                     android.util.Log.e("RNKLineView", "Error in getOrderLines command", e);
                     e.printStackTrace();
                 }
                 break;
+            case "applyOrderLineDiff":
+                android.util.Log.d("RNKLineView", "Processing applyOrderLineDiff command");
+                if (args != null && args.size() > 0) {
+                    try {
+                        ReadableMap diff = args.getMap(0);
+                        List<Map<String, Object>> lineDataList = new ArrayList<>();
+                        if (diff.hasKey("add") && !diff.isNull("add")) {
+                            lineDataList.addAll(toMapList(diff.getArray("add")));
+                        }
+                        if (diff.hasKey("update") && !diff.isNull("update")) {
+                            lineDataList.addAll(toMapList(diff.getArray("update")));
+                        }
+                        List<String> removeIds = new ArrayList<>();
+                        if (diff.hasKey("remove") && !diff.isNull("remove")) {
+                            ReadableArray removeArray = diff.getArray("remove");
+                            for (int i = 0; i < removeArray.size(); i++) {
+                                removeIds.add(removeArray.getString(i));
+                            }
+                        }
+                        containerView.applyOrderLineDiff(removeIds, lineDataList);
+                    } catch (Exception e) {
+                        android.util.Log.e("RNKLineView", "Error in applyOrderLineDiff command", e);
+                        e.printStackTrace();
+                    }
+                } else {
+                    android.util.Log.w("RNKLineView", "applyOrderLineDiff: args is null or empty");
+                }
+                break;
+            case "replaceOrderLines":
+                android.util.Log.d("RNKLineView", "Processing replaceOrderLines command");
+                if (args != null && args.size() > 0) {
+                    try {
+                        containerView.replaceOrderLines(toMapList(args.getArray(0)));
+                    } catch (Exception e) {
+                        android.util.Log.e("RNKLineView", "Error in replaceOrderLines command", e);
+                        e.printStackTrace();
+                    }
+                } else {
+                    android.util.Log.w("RNKLineView", "replaceOrderLines: args is null or empty");
+                }
+                break;
+            case "getRenderStats":
+                android.util.Log.d("RNKLineView", "Processing getRenderStats command");
+                try {
+                    containerView.emitRenderStats();
+                } catch (Exception e) {
+                    android.util.Log.e("RNKLineView", "Error in getRenderStats command", e);
+                    e.printStackTrace();
+                }
+                break;
             default:
                 android.util.Log.w("RNKLineView", "Unknown command: " + commandId);
                 break;
         }
     }
 
+    private static List<Map<String, Object>> toMapList(ReadableArray array) {
+        List<Map<String, Object>> mapList = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            mapList.add(array.getMap(i).toHashMap());
+        }
+        return mapList;
+    }
+
 }
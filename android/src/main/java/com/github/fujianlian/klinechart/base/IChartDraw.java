@@ -36,20 +36,23 @@ public interface IChartDraw<T> {
     void drawText(@NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position, float x, float y);
 
     /**
-     * Get the maximum value in the current entity
-     *
-     * @param point
-     * @return
+     * Slot of the maximum value in the range passed to {@link #extendRange}
+     */
+    int RANGE_MAX = 0;
+
+    /**
+     * Slot of the minimum value in the range passed to {@link #extendRange}
      */
-    float getMaxValue(T point);
+    int RANGE_MIN = 1;
 
     /**
-     * Get the minimum value in the current entity
+     * Widen range so it covers every value drawn for the current entity.
+     * Called for each visible point on every frame, must not allocate
      *
      * @param point
-     * @return
+     * @param range range[RANGE_MAX] and range[RANGE_MIN], updated in place
      */
-    float getMinValue(T point);
+    void extendRange(T point, float[] range);
 
     /**
      * Get value formatter
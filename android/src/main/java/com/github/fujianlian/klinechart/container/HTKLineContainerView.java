@@ -11,12 +11,16 @@ import com.facebook.react.uimanager.events.RCTEventEmitter;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.HashMap;
 import com.github.fujianlian.klinechart.HTKLineConfigManager;
+import com.github.fujianlian.klinechart.HTKLineOptionLoader;
+import com.github.fujianlian.klinechart.HTKLineRenderStats;
+import com.github.fujianlian.klinechart.HTKLineTickCoalescer;
 import com.github.fujianlian.klinechart.KLineChartView;
 import com.github.fujianlian.klinechart.KLineEntity;
 import com.github.fujianlian.klinechart.RNKLineView;
 import com.github.fujianlian.klinechart.HTKLineTargetItem;
+import com.github.fujianlian.klinechart.KLineColumnStore;
+import com.github.fujianlian.klinechart.KLineBinaryDecoder;
 import com.github.fujianlian.klinechart.formatter.DateFormatter;
 
 
@@ -30,8 +34,12 @@ public class HTKLineContainerView extends RelativeLayout {
 
     public HTShotView shotView;
 
+    public HTKLineOptionLoader optionLoader;
+
+    public HTKLineTickCoalescer tickCoalescer;
+
     // Order line management
-    private Map<String, Map<String, Object>> orderLines = new HashMap<>();
+    private final HTOrderLineSet orderLines = new HTOrderLineSet();
 
     public HTKLineContainerView(ThemedReactContext context) {
         super(context);
@@ -43,6 +51,18 @@ public class HTKLineContainerView extends RelativeLayout {
         klineView.setDateTimeFormatter(new DateFormatter());
         klineView.configManager = configManager;
         addView(klineView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        optionLoader = new HTKLineOptionLoader(configManager, this, new Runnable() {
+            @Override
+            public void run() {
+                reloadConfigManager();
+            }
+        });
+        tickCoalescer = new HTKLineTickCoalescer(new HTKLineTickCoalescer.Target() {
+            @Override
+            public void applyCandlesticks(List<Map<String, Object>> candlestickList) {
+                HTKLineContainerView.this.applyCandlesticks(candlestickList);
+            }
+        });
     }
 
     @Override
@@ -60,10 +80,12 @@ public class HTKLineContainerView extends RelativeLayout {
     }
 
     public void reloadConfigManager() {
+        configManager.applyLoadedModelArray(optionLoader.getGeneration());
         klineView.changeMainDrawType(klineView.configManager.primaryStatus);
         klineView.changeSecondDrawType(klineView.configManager.secondStatus);
         klineView.setMainDrawLine(klineView.configManager.isMinute);
         klineView.setPointWidth(klineView.configManager.itemWidth);
+        klineView.setScaleXMin(klineView.configManager.minScale);
         klineView.setCandleWidth(klineView.configManager.candleWidth);
 
         if (klineView.configManager.fontFamily.length() > 0) {
@@ -291,98 +313,150 @@ public class HTKLineContainerView extends RelativeLayout {
     }
 
     public void updateLastCandlestick(Map<String, Object> candlestickData) {
-        android.util.Log.d("HTKLineContainerView", "updateLastCandlestick called with data: " + candlestickData);
+        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "updateLastCandlestick called with data: " + candlestickData);
 
-        if (klineView == null || configManager.modelArray == null ||
-            configManager.modelArray.isEmpty()) {
+        if (candlestickData == null) {
             android.util.Log.w("HTKLineContainerView", "updateLastCandlestick: Null check failed");
             return;
         }
 
-        // Test 2: Don't touch the view at all, just log
-        android.util.Log.d("HTKLineContainerView", "Test 2: No view operations, just updating data");
-
-        try {
-            // Get the existing last candlestick to preserve indicator data
-            int lastIndex = configManager.modelArray.size() - 1;
-            if (lastIndex < 0) {
-                android.util.Log.w("HTKLineContainerView", "No items in modelArray");
-                return;
-            }
-
-            KLineEntity existingEntity = configManager.modelArray.get(lastIndex);
-            if (existingEntity == null) {
-                android.util.Log.w("HTKLineContainerView", "Existing entity is null");
-                return;
-            }
+        // Applied with every other tick of this frame in applyCandlesticks
+        tickCoalescer.offer(candlestickData);
+    }
 
-            // Create a new entity but preserve indicator lists from the existing entity
-            KLineEntity newEntity = configManager.packModel(candlestickData);
-            android.util.Log.d("HTKLineContainerView", "Created new entity: Close=" + newEntity.Close + ", Volume=" + newEntity.Volume);
-            android.util.Log.d("HTKLineContainerView", "Input candlestick data vol field: " + candlestickData.get("vol"));
+    public void updateCandlesticks(ReadableArray candlesticksArray) {
+        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "updateCandlesticks called with " + candlesticksArray.size() + " candlesticks");
 
-            // Validate the new entity
-            if (Float.isNaN(newEntity.Close) || Float.isInfinite(newEntity.Close)) {
-                android.util.Log.w("HTKLineContainerView", "Invalid close price, skipping update");
-                return;
+        for (int i = 0; i < candlesticksArray.size(); i++) {
+            ReadableMap candlestickMap = candlesticksArray.getMap(i);
+            if (candlestickMap != null) {
+                tickCoalescer.offer(candlestickMap.toHashMap());
             }
+        }
+    }
 
-            // Only preserve indicator lists if the new data doesn't contain them
-            android.util.Log.d("HTKLineContainerView", "Using new indicator data from React Native");
-            if (newEntity.maList.isEmpty()) {
-                newEntity.maList = existingEntity.maList;
-            }
-            if (newEntity.maVolumeList.isEmpty()) {
-                newEntity.maVolumeList = existingEntity.maVolumeList;
-            }
-            if (newEntity.rsiList.isEmpty()) {
-                newEntity.rsiList = existingEntity.rsiList;
-            }
-            if (newEntity.wrList.isEmpty()) {
-                newEntity.wrList = existingEntity.wrList;
-            }
-            if (newEntity.selectedItemList.isEmpty()) {
-                newEntity.selectedItemList = existingEntity.selectedItemList;
-            }
+    /**
+     * Upsert by timestamp the latest data of every candle that got a tick this frame,
+     * with one indicator pass and one notifyChanged for all of them
+     */
+    private void applyCandlesticks(List<Map<String, Object>> candlestickList) {
+        if (klineView == null || configManager.modelArray == null ||
+            configManager.modelArray.isEmpty()) {
+            android.util.Log.w("HTKLineContainerView", "applyCandlesticks: Null check failed");
+            return;
+        }
 
-            android.util.Log.d("HTKLineContainerView", "New maVolumeList size: " + newEntity.maVolumeList.size());
-            if (!newEntity.maVolumeList.isEmpty()) {
-                android.util.Log.d("HTKLineContainerView", "Volume MA5: " + ((HTKLineTargetItem)newEntity.maVolumeList.get(0)).value +
-                                   ", MA10: " + ((HTKLineTargetItem)newEntity.maVolumeList.get(1)).value);
+        try {
+            boolean wasAtEnd = klineView.getScrollOffset() >= klineView.getMaxScrollX() - 10;
+            int firstVisibleIndex = klineView.indexFromScrollX(klineView.viewXToScrollX(0));
+            int lastVisibleIndex = klineView.indexFromScrollX(klineView.viewXToScrollX(klineView.getChartWidth()));
+            int insertCount = 0;
+            int evictedCount = 0;
+
+            // Only the last bar updated or bars appended after it, see notifyTailChanged
+            boolean tailOnly = true;
+            int changedFrom = Integer.MAX_VALUE;
+            boolean trimmed = false;
+
+            // Create the new entities outside the lock, the indicator lists of the bar each replaces are kept when missing
+            List<KLineEntity> newEntities = new ArrayList<>(candlestickList.size());
+            for (Map<String, Object> candlestickData : candlestickList) {
+                KLineEntity newEntity = configManager.packModel(candlestickData);
+
+                // Validate the new entity
+                if (Float.isNaN(newEntity.Close) || Float.isInfinite(newEntity.Close)) {
+                    android.util.Log.w("HTKLineContainerView", "Invalid close price, skipping update");
+                    continue;
+                }
+                newEntities.add(newEntity);
             }
 
-            // Update the last item in the data list with synchronization
             synchronized (configManager.modelArray) {
-                if (lastIndex >= configManager.modelArray.size()) {
-                    android.util.Log.w("HTKLineContainerView", "Index out of bounds: " + lastIndex);
-                    return;
-                }
-
-                configManager.modelArray.set(lastIndex, newEntity);
-                android.util.Log.d("HTKLineContainerView", "Updated last candlestick at index: " + lastIndex);
-            }
+                for (KLineEntity newEntity : newEntities) {
+                    // Late ticks reach the bar they belong to
+                    int lastIndex = configManager.modelArray.size() - 1;
+                    int targetIndex = lastIndex;
+                    boolean isInsert = false;
+                    if (newEntity.time != 0) {
+                        int foundIndex = KLineColumnStore.indexOfTime(configManager.modelArray, newEntity.time);
+                        if (foundIndex >= 0) {
+                            targetIndex = foundIndex;
+                        } else {
+                            targetIndex = -foundIndex - 1;
+                            isInsert = true;
+                        }
+                    }
 
-            android.util.Log.d("HTKLineContainerView", "Data update completed, now triggering safe redraw");
+                    KLineEntity existingEntity = configManager.modelArray.get(isInsert ? Math.max(0, targetIndex - 1) : targetIndex);
+                    if (existingEntity == null) {
+                        android.util.Log.w("HTKLineContainerView", "Existing entity is null");
+                        continue;
+                    }
 
-            // Use postDelayed to ensure the data update is fully complete before triggering redraw
-            postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        // Call notifyChanged to properly recalculate the chart state
-                        android.util.Log.d("HTKLineContainerView", "Calling notifyChanged to recalculate chart state");
-                        klineView.notifyChanged();
-                        android.util.Log.d("HTKLineContainerView", "notifyChanged completed successfully");
+                    // Only preserve indicator lists if the new data doesn't contain them
+                    if (newEntity.maList.isEmpty()) {
+                        newEntity.maList = existingEntity.maList;
+                    }
+                    if (newEntity.maVolumeList.isEmpty()) {
+                        newEntity.maVolumeList = existingEntity.maVolumeList;
+                    }
+                    if (newEntity.rsiList.isEmpty()) {
+                        newEntity.rsiList = existingEntity.rsiList;
+                    }
+                    if (newEntity.wrList.isEmpty()) {
+                        newEntity.wrList = existingEntity.wrList;
+                    }
+                    if (newEntity.selectedItemList == null || newEntity.selectedItemList.isEmpty()) {
+                        newEntity.selectedItemList = existingEntity.selectedItemList;
+                    }
 
-                        // Force immediate invalidation to ensure visual update
-                        android.util.Log.d("HTKLineContainerView", "Forcing view invalidation for immediate redraw");
-                        klineView.invalidate();
-                        android.util.Log.d("HTKLineContainerView", "View invalidation completed");
-                    } catch (Exception e) {
-                        android.util.Log.e("HTKLineContainerView", "Error in redraw operations", e);
+                    if (isInsert) {
+                        configManager.modelArray.add(targetIndex, newEntity);
+                        insertCount++;
+                    } else {
+                        configManager.modelArray.set(targetIndex, newEntity);
+                    }
+                    changedFrom = Math.min(changedFrom, targetIndex);
+                    // Once an earlier bar changed, every running value after it is stale
+                    tailOnly = tailOnly && (isInsert ? targetIndex == lastIndex + 1 : targetIndex == lastIndex);
+                    if (configManager.useNativeIndicator && tailOnly) {
+                        if (isInsert) {
+                            configManager.indicatorEngine.append(configManager.modelArray);
+                        } else {
+                            configManager.indicatorEngine.updateLast(configManager.modelArray);
+                        }
                     }
                 }
-            }, 50); // 50ms delay to ensure data is stable
+                if (configManager.useNativeIndicator && !tailOnly) {
+                    // Rewind to the earliest touched bar, a late tick recomputes only the bars after it
+                    configManager.indicatorEngine.updateFrom(configManager.modelArray, changedFrom);
+                }
+                if (insertCount > 0) {
+                    int sizeBeforeTrim = configManager.modelArray.size();
+                    evictedCount = configManager.trimToMaxBarCount(firstVisibleIndex, lastVisibleIndex);
+                    trimmed = configManager.modelArray.size() != sizeBeforeTrim;
+                }
+                if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Applied " + candlestickList.size() + " candlesticks, inserted " + insertCount);
+            }
+
+            if (changedFrom == Integer.MAX_VALUE) {
+                return;
+            }
+            // Already inside the frame callback, redraw in this vsync
+            if (tailOnly && !trimmed) {
+                klineView.notifyTailChanged(changedFrom);
+            } else {
+                int previousScrollX = klineView.getScrollOffset();
+                klineView.notifyChanged();
+                if (evictedCount > 0 && !wasAtEnd) {
+                    // Keep the same bars on screen after the start was trimmed
+                    klineView.setScrollX(previousScrollX - Math.round(evictedCount * configManager.itemWidth));
+                }
+            }
+            if (insertCount > 0 && wasAtEnd) {
+                // A new bar opened, follow it like addCandlesticksAtTheEnd does
+                klineView.setScrollX(klineView.getMaxScrollX());
+            }
 
         } catch (Exception e) {
             android.util.Log.e("HTKLineContainerView", "Error updating data", e);
@@ -391,7 +465,7 @@ public class HTKLineContainerView extends RelativeLayout {
     }
 
     public void addCandlesticksAtTheEnd(ReadableArray candlesticksArray) {
-        android.util.Log.d("HTKLineContainerView", "addCandlesticksAtTheEnd called with " + candlesticksArray.size() + " candlesticks");
+        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "addCandlesticksAtTheEnd called with " + candlesticksArray.size() + " candlesticks");
 
         if (klineView == null || configManager.modelArray == null) {
             android.util.Log.w("HTKLineContainerView", "addCandlesticksAtTheEnd: Null check failed");
@@ -404,15 +478,6 @@ public class HTKLineContainerView extends RelativeLayout {
         }
 
         try {
-            // Check if user is currently at the end of the chart
-            boolean wasAtEnd = klineView.getScrollOffset() >= klineView.getMaxScrollX() - 10;
-
-            // Get existing model for preserving indicator lists structure
-            KLineEntity templateEntity = null;
-            if (!configManager.modelArray.isEmpty()) {
-                templateEntity = configManager.modelArray.get(configManager.modelArray.size() - 1);
-            }
-
             // Convert ReadableArray to List of KLineEntity
             List<KLineEntity> newEntities = new ArrayList<>();
             for (int i = 0; i < candlesticksArray.size(); i++) {
@@ -425,7 +490,7 @@ public class HTKLineContainerView extends RelativeLayout {
                     if (!Float.isNaN(entity.Close) && !Float.isInfinite(entity.Close)) {
                         // The indicator lists are now properly populated by packModel() from React Native data
                         // No need for manual calculation since the data already includes calculated indicators
-                        android.util.Log.d("HTKLineContainerView", "Using indicator data from React Native - maList.size=" + entity.maList.size() + ", maVolumeList.size=" + entity.maVolumeList.size());
+                        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Using indicator data from React Native - maList.size=" + entity.maList.size() + ", maVolumeList.size=" + entity.maVolumeList.size());
 
                         newEntities.add(entity);
                     } else {
@@ -434,17 +499,57 @@ public class HTKLineContainerView extends RelativeLayout {
                 }
             }
 
-            if (newEntities.isEmpty()) {
-                android.util.Log.w("HTKLineContainerView", "No valid candlesticks to add");
-                return;
-            }
+            addCandlesticksAtTheEnd(newEntities);
+
+        } catch (Exception e) {
+            android.util.Log.e("HTKLineContainerView", "Error adding candlesticks", e);
+        }
+    }
+
+    /**
+     * Append a base64 payload from encodeCandlesticks, the bars are copied column by column
+     * into the store without going through a map per bar
+     */
+    public void addCandlestickBufferAtTheEnd(String payload) {
+        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "addCandlestickBufferAtTheEnd called with " + (payload == null ? 0 : payload.length()) + " chars");
+
+        if (klineView == null || configManager.modelArray == null || payload == null) {
+            android.util.Log.w("HTKLineContainerView", "addCandlestickBufferAtTheEnd: Null check failed");
+            return;
+        }
+
+        try {
+            addCandlesticksAtTheEnd(KLineBinaryDecoder.decode(payload, 0));
+        } catch (Exception e) {
+            android.util.Log.e("HTKLineContainerView", "Error adding candlestick buffer", e);
+        }
+    }
+
+    private void addCandlesticksAtTheEnd(List<KLineEntity> newEntities) {
+        if (newEntities.isEmpty()) {
+            android.util.Log.w("HTKLineContainerView", "No valid candlesticks to add");
+            return;
+        }
+
+        try {
+            // Check if user is currently at the end of the chart
+            boolean wasAtEnd = klineView.getScrollOffset() >= klineView.getMaxScrollX() - 10;
+            int firstVisibleIndex = klineView.indexFromScrollX(klineView.viewXToScrollX(0));
+            int lastVisibleIndex = klineView.indexFromScrollX(klineView.viewXToScrollX(klineView.getChartWidth()));
 
             // Add new entities to the end of the array with synchronization
+            final int evictedCount;
             synchronized (configManager.modelArray) {
                 configManager.modelArray.addAll(newEntities);
-                android.util.Log.d("HTKLineContainerView", "Added " + newEntities.size() + " new candlesticks to the end");
-                android.util.Log.d("HTKLineContainerView", "Total candlesticks now: " + configManager.modelArray.size());
-                android.util.Log.d("HTKLineContainerView", "Was at end before adding: " + wasAtEnd);
+                // The new bars read the ones a trim would evict, compute them first
+                if (configManager.useNativeIndicator) {
+                    configManager.indicatorEngine.append(configManager.modelArray);
+                }
+                evictedCount = configManager.trimToMaxBarCount(firstVisibleIndex, lastVisibleIndex);
+                if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Added " + newEntities.size() + " new candlesticks to the end");
+                if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Total candlesticks now: " + configManager.modelArray.size());
+                if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Was at end before adding: " + wasAtEnd);
+                if (configManager.debugTrace && evictedCount > 0) android.util.Log.d("HTKLineContainerView", "Evicted " + evictedCount + " candlesticks from the start");
             }
 
             // Trigger redraw and optionally scroll to end
@@ -452,10 +557,15 @@ public class HTKLineContainerView extends RelativeLayout {
                 @Override
                 public void run() {
                     try {
-                        android.util.Log.d("HTKLineContainerView", "Calling notifyChanged after adding candlesticks");
+                        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Calling notifyChanged after adding candlesticks");
+                        int previousScrollX = klineView.getScrollOffset();
                         klineView.notifyChanged();
+                        if (evictedCount > 0 && !wasAtEnd) {
+                            // Keep the same bars on screen after the start was trimmed
+                            klineView.setScrollX(previousScrollX - Math.round(evictedCount * configManager.itemWidth));
+                        }
 
-                        android.util.Log.d("HTKLineContainerView", "Forcing view invalidation after adding candlesticks");
+                        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Forcing view invalidation after adding candlesticks");
                         klineView.invalidate();
 
                         // If user was at the end, keep them at the end
@@ -463,7 +573,7 @@ public class HTKLineContainerView extends RelativeLayout {
                             postDelayed(new Runnable() {
                                 @Override
                                 public void run() {
-                                    android.util.Log.d("HTKLineContainerView", "Scrolling to end after adding new data");
+                                    if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Scrolling to end after adding new data");
                                     klineView.setScrollX(klineView.getMaxScrollX());
                                 }
                             }, 100); // Additional delay for scroll
@@ -480,7 +590,7 @@ public class HTKLineContainerView extends RelativeLayout {
     }
 
     public void addCandlesticksAtTheStart(ReadableArray candlesticksArray) {
-        android.util.Log.d("HTKLineContainerView", "addCandlesticksAtTheStart called with " + candlesticksArray.size() + " candlesticks");
+        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "addCandlesticksAtTheStart called with " + candlesticksArray.size() + " candlesticks");
 
         if (klineView == null || configManager.modelArray == null) {
             android.util.Log.w("HTKLineContainerView", "addCandlesticksAtTheStart: Null check failed");
@@ -507,7 +617,7 @@ public class HTKLineContainerView extends RelativeLayout {
                     // Validate the entity
                     if (!Float.isNaN(entity.Close) && !Float.isInfinite(entity.Close)) {
                         // The indicator lists are now properly populated by packModel() from React Native data
-                        android.util.Log.d("HTKLineContainerView", "Using indicator data from React Native - maList.size=" + entity.maList.size() + ", maVolumeList.size=" + entity.maVolumeList.size());
+                        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Using indicator data from React Native - maList.size=" + entity.maList.size() + ", maVolumeList.size=" + entity.maVolumeList.size());
 
                         newEntities.add(entity);
                     } else {
@@ -516,27 +626,65 @@ public class HTKLineContainerView extends RelativeLayout {
                 }
             }
 
-            if (newEntities.isEmpty()) {
-                android.util.Log.w("HTKLineContainerView", "No valid candlesticks to add");
-                return;
-            }
+            addCandlesticksAtTheStart(newEntities);
+
+        } catch (Exception e) {
+            android.util.Log.e("HTKLineContainerView", "Error adding candlesticks at start", e);
+        }
+    }
+
+    /**
+     * Prepend a base64 payload from encodeCandlesticks, the bars are copied column by column
+     * into the store without going through a map per bar
+     */
+    public void addCandlestickBufferAtTheStart(String payload) {
+        if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "addCandlestickBufferAtTheStart called with " + (payload == null ? 0 : payload.length()) + " chars");
+
+        if (klineView == null || configManager.modelArray == null || payload == null) {
+            android.util.Log.w("HTKLineContainerView", "addCandlestickBufferAtTheStart: Null check failed");
+            return;
+        }
+
+        try {
+            // Reset the scroll left trigger flag to allow new triggers
+            klineView.resetScrollLeftTrigger();
+            addCandlesticksAtTheStart(KLineBinaryDecoder.decode(payload, 0));
+        } catch (Exception e) {
+            android.util.Log.e("HTKLineContainerView", "Error adding candlestick buffer at start", e);
+        }
+    }
 
+    private void addCandlesticksAtTheStart(List<KLineEntity> newEntities) {
+        if (newEntities.isEmpty()) {
+            android.util.Log.w("HTKLineContainerView", "No valid candlesticks to add");
+            return;
+        }
+
+        try {
             // Get current scroll position before modifying data
             int currentScrollX = klineView.getScrollOffset();
+            int firstVisibleIndex = klineView.indexFromScrollX(klineView.viewXToScrollX(0)) + newEntities.size();
+            int lastVisibleIndex = klineView.indexFromScrollX(klineView.viewXToScrollX(klineView.getChartWidth())) + newEntities.size();
 
             // Add new entities to the beginning of the array (prepend)
+            int evictedCount;
             synchronized (configManager.modelArray) {
                 configManager.modelArray.addAll(0, newEntities);
-                android.util.Log.d("HTKLineContainerView", "Added " + newEntities.size() + " new candlesticks to the start");
-                android.util.Log.d("HTKLineContainerView", "Total candlesticks now: " + configManager.modelArray.size());
+                evictedCount = configManager.trimToMaxBarCount(firstVisibleIndex, lastVisibleIndex);
+                if (configManager.useNativeIndicator) {
+                    // Earlier bars change every running value, start over
+                    configManager.indicatorEngine.calculate(configManager.modelArray);
+                }
+                if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Added " + newEntities.size() + " new candlesticks to the start");
+                if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Total candlesticks now: " + configManager.modelArray.size());
             }
 
             // Set up scroll position adjustment using the config manager mechanism
-            int addedWidth = newEntities.size() * (int) klineView.configManager.itemWidth;
+            int addedWidth = Math.round((newEntities.size() - evictedCount) * klineView.configManager.itemWidth);
             configManager.scrollPositionAdjustment = addedWidth;
             configManager.shouldAdjustScrollPosition = true;
 
-            android.util.Log.d("HTKLineContainerView", "Set scroll position adjustment: " + addedWidth + " pixels");
+            if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Set scroll position adjustment: " + addedWidth + " pixels");
 
             // Use the same reload mechanism as optionList
             int previousScrollX = klineView.getScrollOffset();
@@ -545,7 +693,7 @@ public class HTKLineContainerView extends RelativeLayout {
             if (klineView.configManager.shouldAdjustScrollPosition) {
                 // Adjust scroll position to compensate for the new data added at start
                 int newScrollX = previousScrollX + klineView.configManager.scrollPositionAdjustment;
-                android.util.Log.d("HTKLineContainerView", "Adjusting scroll position from " + previousScrollX + " to " + newScrollX);
+                if (configManager.debugTrace) android.util.Log.d("HTKLineContainerView", "Adjusting scroll position from " + previousScrollX + " to " + newScrollX);
                 klineView.setScrollX(newScrollX);
 
                 // Reset the flags
@@ -566,13 +714,15 @@ public class HTKLineContainerView extends RelativeLayout {
             return;
         }
 
-        String id = (String) orderLineData.get("id");
+        HTOrderLine orderLine = HTOrderLine.fromMap(orderLineData);
+        if (orderLine == null) {
+            android.util.Log.w("HTKLineContainerView", "addOrderLine - Invalid order line id");
+            return;
+        }
 
         // Store the order line
-        synchronized (orderLines) {
-            orderLines.put(id, orderLineData);
-            android.util.Log.d("HTKLineContainerView", "Added order line with id: " + id);
-        }
+        orderLines.put(orderLine);
+        android.util.Log.d("HTKLineContainerView", "Added order line with id: " + orderLine.id);
 
         // Trigger redraw to show the order line
         post(new Runnable() {
@@ -592,10 +742,8 @@ public class HTKLineContainerView extends RelativeLayout {
         }
 
         // Remove the order line
-        synchronized (orderLines) {
-            orderLines.remove(orderLineId);
-            android.util.Log.d("HTKLineContainerView", "Removed order line with id: " + orderLineId);
-        }
+        orderLines.remove(orderLineId);
+        android.util.Log.d("HTKLineContainerView", "Removed order line with id: " + orderLineId);
 
         // Trigger redraw to remove the order line
         post(new Runnable() {
@@ -614,13 +762,15 @@ public class HTKLineContainerView extends RelativeLayout {
             return;
         }
 
-        String id = (String) orderLineData.get("id");
+        HTOrderLine orderLine = HTOrderLine.fromMap(orderLineData);
+        if (orderLine == null) {
+            android.util.Log.w("HTKLineContainerView", "updateOrderLine - Invalid order line id");
+            return;
+        }
 
         // Update the order line
-        synchronized (orderLines) {
-            orderLines.put(id, orderLineData);
-            android.util.Log.d("HTKLineContainerView", "Updated order line with id: " + id);
-        }
+        orderLines.put(orderLine);
+        android.util.Log.d("HTKLineContainerView", "Updated order line with id: " + orderLine.id);
 
         // Trigger redraw to update the order line
         post(new Runnable() {
@@ -635,18 +785,132 @@ public class HTKLineContainerView extends RelativeLayout {
         android.util.Log.d("HTKLineContainerView", "getOrderLines called");
 
         // Return all order lines as a list
-        synchronized (orderLines) {
-            List<Map<String, Object>> orderLinesList = new ArrayList<>(orderLines.values());
-            android.util.Log.d("HTKLineContainerView", "Returning " + orderLinesList.size() + " order lines");
-            return orderLinesList;
+        List<Map<String, Object>> orderLinesList = orderLines.getSnapshot().toDataList();
+        android.util.Log.d("HTKLineContainerView", "Returning " + orderLinesList.size() + " order lines");
+        return orderLinesList;
+    }
+
+    /**
+     * Apply a batch of order line changes as one snapshot, with a single redraw
+     *
+     * @param removeIds ids to remove, applied first
+     * @param lineDataList lines to add or update by id
+     * @return line count after the change
+     */
+    public int applyOrderLineDiff(List<String> removeIds, List<Map<String, Object>> lineDataList) {
+        HTOrderLineSet.Snapshot snapshot = orderLines.apply(removeIds, parseOrderLines(lineDataList));
+        android.util.Log.d("HTKLineContainerView", "applyOrderLineDiff - " + snapshot.size() + " order lines");
+        onOrderLinesChanged(snapshot);
+        return snapshot.size();
+    }
+
+    /**
+     * Replace every order line with lineDataList, with a single redraw
+     *
+     * @return line count after the change
+     */
+    public int replaceOrderLines(List<Map<String, Object>> lineDataList) {
+        HTOrderLineSet.Snapshot snapshot = orderLines.replace(parseOrderLines(lineDataList));
+        android.util.Log.d("HTKLineContainerView", "replaceOrderLines - " + snapshot.size() + " order lines");
+        onOrderLinesChanged(snapshot);
+        return snapshot.size();
+    }
+
+    private List<HTOrderLine> parseOrderLines(List<Map<String, Object>> lineDataList) {
+        List<HTOrderLine> lineList = new ArrayList<>();
+        if (lineDataList == null) {
+            return lineList;
         }
+        for (Map<String, Object> lineData : lineDataList) {
+            HTOrderLine orderLine = HTOrderLine.fromMap(lineData);
+            if (orderLine == null) {
+                android.util.Log.w("HTKLineContainerView", "Skipping order line without id: " + lineData);
+                continue;
+            }
+            lineList.add(orderLine);
+        }
+        return lineList;
+    }
+
+    private void onOrderLinesChanged(HTOrderLineSet.Snapshot snapshot) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                klineView.invalidate();
+            }
+        });
+        emitOrderLines(snapshot, false);
     }
 
-    // Method to allow KLineChartView to access order lines for drawing
-    public Map<String, Map<String, Object>> getAllOrderLines() {
-        synchronized (orderLines) {
-            return new HashMap<>(orderLines);
+    /**
+     * Send the line count, and with includeLines every line, of one snapshot to JS as onOrderLines
+     */
+    public void emitOrderLines(HTOrderLineSet.Snapshot snapshot, boolean includeLines) {
+        WritableMap map = Arguments.createMap();
+        map.putInt("count", snapshot.size());
+        if (includeLines) {
+            WritableArray lineArray = Arguments.createArray();
+            for (HTOrderLine line : snapshot.byId.values()) {
+                lineArray.pushMap(Arguments.makeNativeMap(line.data));
+            }
+            map.putArray("orderLines", lineArray);
+        }
+        reactContext.getJSModule(RCTEventEmitter.class).receiveEvent(
+                getId(),
+                RNKLineView.onOrderLinesKey,
+                map
+        );
+    }
+
+    /**
+     * Send the frame timings and optionList loading counters to JS as onRenderStats
+     */
+    public void emitRenderStats() {
+        HTKLineRenderStats renderStats = klineView.getRenderStats();
+        WritableMap phases = Arguments.createMap();
+        for (int phase = 0; phase < HTKLineRenderStats.PHASE_NAMES.length; phase++) {
+            WritableMap phaseMap = Arguments.createMap();
+            phaseMap.putInt("count", renderStats.getSampleCount(phase));
+            phaseMap.putDouble("p50", renderStats.getPercentileMillis(phase, 50));
+            phaseMap.putDouble("p95", renderStats.getPercentileMillis(phase, 95));
+            phaseMap.putDouble("p99", renderStats.getPercentileMillis(phase, 99));
+            phaseMap.putDouble("max", renderStats.getMaxMillis(phase));
+            phases.putMap(HTKLineRenderStats.PHASE_NAMES[phase], phaseMap);
         }
+
+        WritableMap optionList = Arguments.createMap();
+        optionList.putDouble("lastParseMs", optionLoader.getLastParseMillis());
+        optionList.putDouble("maxParseMs", optionLoader.getMaxParseMillis());
+        optionList.putDouble("loadedCount", optionLoader.getLoadedCount());
+        optionList.putDouble("droppedCount", optionLoader.getDroppedCount());
+
+        WritableMap candlesticks = Arguments.createMap();
+        candlesticks.putDouble("tickCount", tickCoalescer.getTickCount());
+        candlesticks.putDouble("flushCount", tickCoalescer.getFlushCount());
+
+        WritableMap lines = Arguments.createMap();
+        lines.putInt("segmentCount", klineView.getLineBatch().getSegmentCount());
+        lines.putInt("drawCallCount", klineView.getLineBatch().getDrawCallCount());
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("frameCount", renderStats.getFrameCount());
+        map.putDouble("jankCount", renderStats.getJankCount());
+        map.putDouble("jankThresholdMs", HTKLineRenderStats.JANK_THRESHOLD_NANOS / 1e6);
+        map.putInt("window", HTKLineRenderStats.WINDOW);
+        map.putMap("phases", phases);
+        map.putMap("optionList", optionList);
+        map.putMap("candlesticks", candlesticks);
+        map.putMap("lines", lines);
+        reactContext.getJSModule(RCTEventEmitter.class).receiveEvent(
+                getId(),
+                RNKLineView.onRenderStatsKey,
+                map
+        );
+    }
+
+    // Method to allow KLineChartView to access order lines for drawing, without locking
+    public HTOrderLineSet.Snapshot getOrderLineSnapshot() {
+        return orderLines.getSnapshot();
     }
 
 }
@@ -0,0 +1,121 @@
+package com.github.fujianlian.klinechart.container;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.util.DisplayMetrics;
+
+import java.util.Map;
+
+/**
+ * 订单线
+ * Typed, immutable copy of an order line sent from JS. An update replaces the whole line,
+ * so the draw pass never sees a half-written one.
+ */
+public class HTOrderLine {
+
+    private static final int DEFAULT_COLOR = Color.parseColor("#FF9500");
+
+    public final String id;
+
+    public final String type;
+
+    public final float price;
+
+    public final double amount;
+
+    // Lines without a price or type are kept but not drawn
+    public final boolean drawable;
+
+    public final int color;
+
+    public final String label;
+
+    public final float labelFontSize;
+
+    public final int labelColor;
+
+    public final int labelBackgroundColor;
+
+    public final String labelDescription;
+
+    public final int labelDescriptionColor;
+
+    // Data as sent from JS, returned by getOrderLines
+    public final Map<String, Object> data;
+
+    // Built on the UI thread the first time the line is drawn
+    private HTOrderLineRender mRender;
+
+    private HTOrderLine(String id, Map<String, Object> data) {
+        this.id = id;
+        this.data = data;
+        Object typeObj = data.get("type");
+        this.type = typeObj instanceof String ? (String) typeObj : null;
+        Object priceObj = data.get("price");
+        this.price = priceObj instanceof Number ? ((Number) priceObj).floatValue() : 0;
+        Object amountObj = data.get("amount");
+        this.amount = amountObj instanceof Number ? ((Number) amountObj).doubleValue() : 0;
+        this.drawable = data.containsKey("price") && data.containsKey("type");
+
+        // Use color property if available, otherwise default to orange
+        this.color = parseColor(data.get("color"), DEFAULT_COLOR);
+        Object labelObj = data.get("label");
+        this.label = labelObj instanceof String && !((String) labelObj).isEmpty() ? (String) labelObj : null;
+        Object fontSizeObj = data.get("labelFontSize");
+        this.labelFontSize = fontSizeObj instanceof Number ? ((Number) fontSizeObj).floatValue() : 12.0f;
+        // Label color defaults to line color
+        this.labelColor = parseColor(data.get("labelColor"), this.color);
+        // Background defaults to transparent
+        this.labelBackgroundColor = parseColor(data.get("labelBackgroundColor"), Color.TRANSPARENT);
+        Object descriptionObj = data.get("labelDescription");
+        this.labelDescription = descriptionObj instanceof String && !((String) descriptionObj).isEmpty() ? (String) descriptionObj : null;
+        // Description color defaults to label color
+        this.labelDescriptionColor = parseColor(data.get("labelDescriptionColor"), this.labelColor);
+    }
+
+    /**
+     * @return null when the data has no string id
+     */
+    public static HTOrderLine fromMap(Map<String, Object> data) {
+        if (data == null || !(data.get("id") instanceof String)) {
+            return null;
+        }
+        return new HTOrderLine((String) data.get("id"), data);
+    }
+
+    /**
+     * Paints and text sizes for drawing, only call from the UI thread
+     */
+    public HTOrderLineRender getRender(Typeface font, DisplayMetrics metrics) {
+        if (mRender == null) {
+            mRender = new HTOrderLineRender();
+        }
+        if (!mRender.isValid(font, metrics)) {
+            mRender.rebuild(this, font, metrics);
+        }
+        return mRender;
+    }
+
+    /**
+     * Parse #RRGGBB or #RRGGBBAA, the JS side sends alpha last
+     *
+     * @param value    color string
+     * @param fallback color when no string is given or it cannot be parsed
+     */
+    public static int parseColor(Object value, int fallback) {
+        if (!(value instanceof String)) {
+            return fallback;
+        }
+        String colorString = (String) value;
+        try {
+            if (colorString.length() == 9 && colorString.startsWith("#")) {
+                // Convert #RRGGBBAA to #AARRGGBB
+                String rgba = colorString.substring(1);
+                return Color.parseColor("#" + rgba.substring(6) + rgba.substring(0, 6));
+            }
+            return Color.parseColor(colorString);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
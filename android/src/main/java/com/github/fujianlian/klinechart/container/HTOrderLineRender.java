@@ -0,0 +1,156 @@
+package com.github.fujianlian.klinechart.container;
+
+import android.graphics.Canvas;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.util.DisplayMetrics;
+
+/**
+ * 订单线绘制缓存
+ * Paints, measured text and pill size of one {@link HTOrderLine}. Owned by the line, so it lives
+ * until addOrderLine/updateOrderLine replace the line, and is rebuilt only when the font or
+ * display density changes. Only the y position is computed per frame.
+ */
+public class HTOrderLineRender {
+
+    // Pill container dimensions (match close price pill)
+    private static final float HORIZONTAL_PADDING = 20;
+
+    private static final float VERTICAL_PADDING = 14;
+
+    private Typeface mFont;
+
+    private float mDensity;
+
+    private float mScaledDensity;
+
+    public final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private String mLabel;
+
+    private String mDescription;
+
+    private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Paint mDescriptionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Paint mPillFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Paint mPillBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Rect mTextBounds = new Rect();
+
+    private final RectF mPillRect = new RectF();
+
+    private float mLabelWidth;
+
+    private float mSpacing;
+
+    private float mTextHeight;
+
+    private float mPillWidth;
+
+    private float mPillHeight;
+
+    private float mOuterPadding;
+
+    public HTOrderLineRender() {
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(2.0f);
+        // dash length, gap length
+        linePaint.setPathEffect(new DashPathEffect(new float[]{15.0f, 10.0f}, 0));
+        mPillFillPaint.setStyle(Paint.Style.FILL);
+        mPillBorderPaint.setStyle(Paint.Style.STROKE);
+    }
+
+    /**
+     * Whether the cached state still matches this font and display
+     */
+    public boolean isValid(Typeface font, DisplayMetrics metrics) {
+        return mFont == font && mDensity == metrics.density && mScaledDensity == metrics.scaledDensity;
+    }
+
+    public void rebuild(HTOrderLine line, Typeface font, DisplayMetrics metrics) {
+        mFont = font;
+        mDensity = metrics.density;
+        mScaledDensity = metrics.scaledDensity;
+        mLabel = null;
+        mDescription = null;
+
+        linePaint.setColor(line.color);
+        if (line.label == null) {
+            return;
+        }
+        mLabel = line.label;
+
+        setupTextPaint(mLabelPaint, line.labelColor, line.labelFontSize);
+        mLabelPaint.getTextBounds(mLabel, 0, mLabel.length(), mTextBounds);
+        mLabelWidth = mTextBounds.width();
+        mTextHeight = mTextBounds.height();
+        mSpacing = 0;
+        float descriptionWidth = 0;
+
+        if (line.labelDescription != null) {
+            mDescription = line.labelDescription;
+            mSpacing = 4 * metrics.density;
+            setupTextPaint(mDescriptionPaint, line.labelDescriptionColor, line.labelFontSize);
+            mDescriptionPaint.getTextBounds(mDescription, 0, mDescription.length(), mTextBounds);
+            descriptionWidth = mTextBounds.width();
+            mTextHeight = Math.max(mTextHeight, mTextBounds.height());
+        }
+
+        mOuterPadding = 8 * metrics.density;
+        mPillWidth = mLabelWidth + mSpacing + descriptionWidth + HORIZONTAL_PADDING * 2;
+        mPillHeight = mTextHeight + VERTICAL_PADDING * 2;
+
+        mPillFillPaint.setColor(line.labelBackgroundColor);
+        // Border uses the line color
+        mPillBorderPaint.setColor(line.color);
+        mPillBorderPaint.setStrokeWidth(1 * metrics.density);
+    }
+
+    private void setupTextPaint(Paint paint, int color, float fontSize) {
+        paint.setColor(color);
+        paint.setTextSize(fontSize * mScaledDensity);
+        paint.setTypeface(mFont);
+    }
+
+    /**
+     * Draw the label pill, if it fits in the left third, and the dashed line after it
+     *
+     * @param y        y of the price
+     * @param width    view width
+     * @param lineEndX where the line stops, before the y-axis scale
+     */
+    public void draw(Canvas canvas, float y, int width, float lineEndX) {
+        // Line starts after the label if it is drawn
+        float lineStartX = 0;
+        if (mLabel != null) {
+            float labelX = mOuterPadding;
+            float labelY = y - mPillHeight / 2;
+
+            // Only draw if there's enough space (left third of screen)
+            if (labelX + mPillWidth + mOuterPadding < width / 3) {
+                mPillRect.set(labelX, labelY, labelX + mPillWidth, labelY + mPillHeight);
+                // Use same radius calculation as close price pill
+                float radius = (VERTICAL_PADDING * 2 + mTextHeight) / 2;
+                canvas.drawRoundRect(mPillRect, radius, radius, mPillFillPaint);
+                canvas.drawRoundRect(mPillRect, radius, radius, mPillBorderPaint);
+
+                float textX = labelX + HORIZONTAL_PADDING;
+                float textY = y + mTextHeight / 2;
+                canvas.drawText(mLabel, textX, textY, mLabelPaint);
+                if (mDescription != null) {
+                    canvas.drawText(mDescription, textX + mLabelWidth + mSpacing, textY, mDescriptionPaint);
+                }
+
+                // Set line to start after pill with additional padding
+                lineStartX = labelX + mPillWidth + mOuterPadding;
+            }
+        }
+        canvas.drawLine(lineStartX, y, lineEndX, y, linePaint);
+    }
+}
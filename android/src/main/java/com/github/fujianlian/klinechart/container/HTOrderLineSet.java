@@ -0,0 +1,147 @@
+package com.github.fujianlian.klinechart.container;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单线集合
+ * Copy-on-write: every change builds a new immutable {@link Snapshot} under a writer lock and
+ * publishes it through a volatile field. The draw pass only reads the current snapshot, so it
+ * never waits on commands coming from the JS thread and never sees a half-applied change.
+ */
+public class HTOrderLineSet {
+
+    private static final Comparator<HTOrderLine> PRICE_ORDER = new Comparator<HTOrderLine>() {
+        @Override
+        public int compare(HTOrderLine l, HTOrderLine r) {
+            return Float.compare(l.price, r.price);
+        }
+    };
+
+    public static final class Snapshot {
+
+        // Drawable lines sorted by price
+        public final HTOrderLine[] byPrice;
+
+        // Every line by id, in insertion order
+        public final Map<String, HTOrderLine> byId;
+
+        private Snapshot(HTOrderLine[] byPrice, Map<String, HTOrderLine> byId) {
+            this.byPrice = byPrice;
+            this.byId = byId;
+        }
+
+        public int size() {
+            return byId.size();
+        }
+
+        /**
+         * Index of the first line in byPrice whose price is not below price
+         */
+        public int lowerBound(float price) {
+            int low = 0;
+            int high = byPrice.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (byPrice[mid].price < price) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Data maps of every line, as they were sent from JS
+         */
+        public List<Map<String, Object>> toDataList() {
+            List<Map<String, Object>> list = new ArrayList<>(byId.size());
+            for (HTOrderLine line : byId.values()) {
+                list.add(line.data);
+            }
+            return list;
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(new HTOrderLine[0], Collections.<String, HTOrderLine>emptyMap());
+
+    private final Object mWriteLock = new Object();
+
+    private volatile Snapshot mSnapshot = EMPTY;
+
+    public Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Add the line, or replace the line with the same id
+     */
+    public Snapshot put(HTOrderLine line) {
+        return apply(null, Collections.singletonList(line));
+    }
+
+    public Snapshot remove(String id) {
+        return apply(Collections.singletonList(id), null);
+    }
+
+    /**
+     * Remove, then add or replace, as one change, the draw pass sees either none or all of it
+     *
+     * @param removals ids to remove, may be null
+     * @param upserts  lines to add or replace by id, may be null
+     * @return the published snapshot
+     */
+    public Snapshot apply(Collection<String> removals, Collection<HTOrderLine> upserts) {
+        synchronized (mWriteLock) {
+            Map<String, HTOrderLine> byId = new LinkedHashMap<>(mSnapshot.byId);
+            if (removals != null) {
+                for (String id : removals) {
+                    byId.remove(id);
+                }
+            }
+            if (upserts != null) {
+                for (HTOrderLine line : upserts) {
+                    byId.put(line.id, line);
+                }
+            }
+            return publish(byId);
+        }
+    }
+
+    /**
+     * Drop every line and keep only lines
+     *
+     * @return the published snapshot
+     */
+    public Snapshot replace(Collection<HTOrderLine> lines) {
+        synchronized (mWriteLock) {
+            Map<String, HTOrderLine> byId = new LinkedHashMap<>();
+            for (HTOrderLine line : lines) {
+                byId.put(line.id, line);
+            }
+            return publish(byId);
+        }
+    }
+
+    private Snapshot publish(Map<String, HTOrderLine> byId) {
+        int count = 0;
+        HTOrderLine[] byPrice = new HTOrderLine[byId.size()];
+        for (HTOrderLine line : byId.values()) {
+            if (line.drawable) {
+                byPrice[count++] = line;
+            }
+        }
+        byPrice = Arrays.copyOf(byPrice, count);
+        Arrays.sort(byPrice, PRICE_ORDER);
+        Snapshot snapshot = new Snapshot(byPrice, Collections.unmodifiableMap(byId));
+        mSnapshot = snapshot;
+        return snapshot;
+    }
+}
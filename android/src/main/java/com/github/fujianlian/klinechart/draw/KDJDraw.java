@@ -29,6 +29,8 @@ public class KDJDraw implements IChartDraw<IKDJ> {
     private Paint mDPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint mJPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
+    private final LegendCache mLegendCache = new LegendCache();
+
     public KDJDraw(BaseKLineChartView view) {
         mContext = view.getContext();
     }
@@ -54,32 +56,28 @@ public class KDJDraw implements IChartDraw<IKDJ> {
 
     @Override
     public void drawText(@NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position, float x, float y) {
-        IKDJ point = (IKDJ) view.getItem(position);
-        if (point.getK() != 0) {
-            String text = String.format("KDJ(%s,%s,%s)  ", view.configManager.kdjN, view.configManager.kdjM1, view.configManager.kdjM2);
-            canvas.drawText(text, x, y, view.getTextPaint());
-            x += view.getTextPaint().measureText(text);
-            text = "K:" + view.formatValue(point.getK()) + "  ";
-            canvas.drawText(text, x, y, mKPaint);
-            x += mKPaint.measureText(text);
-            if (point.getD() != 0) {
-                text = "D:" + view.formatValue(point.getD()) + "  ";
-                canvas.drawText(text, x, y, mDPaint);
-                x += mDPaint.measureText(text);
-                text = "J:" + view.formatValue(point.getJ()) + "  ";
-                canvas.drawText(text, x, y, mJPaint);
+        int generation = view.getLegendGeneration();
+        LegendCache.Layout layout = mLegendCache.get(position, generation, 0);
+        if (layout == null) {
+            layout = mLegendCache.begin(position, generation, 0);
+            IKDJ point = (IKDJ) view.getItem(position);
+            if (point.getK() != 0) {
+                String text = String.format("KDJ(%s,%s,%s)  ", view.configManager.kdjN, view.configManager.kdjM1, view.configManager.kdjM2);
+                layout.add(text, view.getTextPaint());
+                layout.add("K:" + view.formatValue(point.getK()) + "  ", mKPaint);
+                if (point.getD() != 0) {
+                    layout.add("D:" + view.formatValue(point.getD()) + "  ", mDPaint);
+                    layout.add("J:" + view.formatValue(point.getJ()) + "  ", mJPaint);
+                }
             }
         }
+        layout.draw(canvas, x, y);
     }
 
     @Override
-    public float getMaxValue(IKDJ point) {
-        return Math.max(point.getK(), Math.max(point.getD(), point.getJ()));
-    }
-
-    @Override
-    public float getMinValue(IKDJ point) {
-        return Math.min(point.getK(), Math.min(point.getD(), point.getJ()));
+    public void extendRange(IKDJ point, float[] range) {
+        range[RANGE_MAX] = Math.max(range[RANGE_MAX], Math.max(point.getK(), Math.max(point.getD(), point.getJ())));
+        range[RANGE_MIN] = Math.min(range[RANGE_MIN], Math.min(point.getK(), Math.min(point.getD(), point.getJ())));
     }
 
     @Override
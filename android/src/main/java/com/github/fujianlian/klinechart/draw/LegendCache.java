@@ -0,0 +1,129 @@
+package com.github.fujianlian.klinechart.draw;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.Arrays;
+
+/**
+ * 图例文字缓存
+ * Finished legend strings of the recently shown bars with their x offsets, keyed by bar index and
+ * the view's legend generation. Scrubbing back and forth over the same bars replays them without
+ * building or measuring text. Slots are direct-mapped by bar index and reused. UI thread only.
+ */
+public class LegendCache {
+
+    private static final int SLOT_COUNT = 64;
+
+    public static final class Layout {
+
+        private int mPosition = -1;
+
+        private int mGeneration;
+
+        private int mMode;
+
+        private int mCount;
+
+        private float mWidth;
+
+        private String[] mTexts = new String[4];
+
+        private Paint[] mPaints = new Paint[4];
+
+        private float[] mOffsets = new float[4];
+
+        private int[] mColors = new int[4];
+
+        private boolean[] mSetsColor = new boolean[4];
+
+        /**
+         * Text drawn with paint as it is, advances by its width
+         */
+        public void add(String text, Paint paint) {
+            add(text, paint, false, 0, paint);
+        }
+
+        /**
+         * Text drawn with paint set to color, advances by its width
+         */
+        public void add(String text, Paint paint, int color) {
+            add(text, paint, true, color, paint);
+        }
+
+        /**
+         * Text drawn with paint set to color, advances by its width in measurePaint
+         */
+        public void add(String text, Paint paint, int color, Paint measurePaint) {
+            add(text, paint, true, color, measurePaint);
+        }
+
+        private void add(String text, Paint paint, boolean setsColor, int color, Paint measurePaint) {
+            if (mCount == mTexts.length) {
+                int length = mCount * 2;
+                mTexts = Arrays.copyOf(mTexts, length);
+                mPaints = Arrays.copyOf(mPaints, length);
+                mOffsets = Arrays.copyOf(mOffsets, length);
+                mColors = Arrays.copyOf(mColors, length);
+                mSetsColor = Arrays.copyOf(mSetsColor, length);
+            }
+            mTexts[mCount] = text;
+            mPaints[mCount] = paint;
+            mOffsets[mCount] = mWidth;
+            mColors[mCount] = color;
+            mSetsColor[mCount] = setsColor;
+            mCount++;
+            mWidth += measurePaint.measureText(text);
+        }
+
+        public void draw(Canvas canvas, float x, float y) {
+            for (int i = 0; i < mCount; i++) {
+                Paint paint = mPaints[i];
+                if (mSetsColor[i]) {
+                    paint.setColor(mColors[i]);
+                }
+                canvas.drawText(mTexts[i], x + mOffsets[i], y, paint);
+            }
+        }
+
+        private void reset(int position, int generation, int mode) {
+            mPosition = position;
+            mGeneration = generation;
+            mMode = mode;
+            mCount = 0;
+            mWidth = 0;
+            Arrays.fill(mTexts, null);
+            Arrays.fill(mPaints, null);
+        }
+    }
+
+    private final Layout[] mSlots = new Layout[SLOT_COUNT];
+
+    /**
+     * Cached layout of the bar, null when it has to be built with {@link #begin}
+     *
+     * @param mode draw specific state the text depends on, for example the primary status
+     */
+    public Layout get(int position, int generation, int mode) {
+        Layout layout = mSlots[position & (SLOT_COUNT - 1)];
+        if (layout != null && layout.mPosition == position
+                && layout.mGeneration == generation && layout.mMode == mode) {
+            return layout;
+        }
+        return null;
+    }
+
+    /**
+     * Empty layout for the bar, replaces whatever was cached in its slot
+     */
+    public Layout begin(int position, int generation, int mode) {
+        int slot = position & (SLOT_COUNT - 1);
+        Layout layout = mSlots[slot];
+        if (layout == null) {
+            layout = new Layout();
+            mSlots[slot] = layout;
+        }
+        layout.reset(position, generation, mode);
+        return layout;
+    }
+}
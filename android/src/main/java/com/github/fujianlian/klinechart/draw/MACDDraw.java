@@ -32,6 +32,8 @@ public class MACDDraw implements IChartDraw<IMACD> {
     private Paint mDEAPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint mMACDPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint primaryPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final LegendCache mLegendCache = new LegendCache();
     /**
      * macd 中柱子的宽度
      */
@@ -51,47 +53,34 @@ public class MACDDraw implements IChartDraw<IMACD> {
 
     @Override
     public void drawTranslated(@Nullable IMACD lastPoint, @NonNull IMACD curPoint, float lastX, float curX, @NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position) {
-        drawMACD(canvas, view, curX, curPoint.getMacd());
+        if (!view.isDrawingLodEnvelope()) {
+            drawMACD(canvas, view, curX, curPoint.getMacd());
+        }
         view.drawChildLine(canvas, mDIFPaint, lastX, lastPoint.getDif(), curX, curPoint.getDif());
         view.drawChildLine(canvas, mDEAPaint, lastX, lastPoint.getDea(), curX, curPoint.getDea());
     }
 
     @Override
     public void drawText(@NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position, float x, float y) {
-        IMACD point = (IMACD) view.getItem(position);
-        String text = String.format("MACD(%s,%s,%s)  ", new Object[]{view.configManager.macdS, view.configManager.macdL, view.configManager.macdM});
-        canvas.drawText(text, x, y, view.getTextPaint());
-        x += view.getTextPaint().measureText(text);
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("MACD:");
-        stringBuilder.append(view.formatValue(point.getMacd()));
-        String str = "  ";
-        stringBuilder.append(str);
-        text = stringBuilder.toString();
-
-        canvas.drawText(text, x, y, this.mMACDPaint);
-        x += this.mMACDPaint.measureText(text);
-        stringBuilder = new StringBuilder();
-        stringBuilder.append("DIF:");
-        stringBuilder.append(view.formatValue(point.getDif()));
-        stringBuilder.append(str);
-        text = stringBuilder.toString();
-        canvas.drawText(text, x, y, this.mDIFPaint);
-        x += this.mDIFPaint.measureText(text);
-        stringBuilder = new StringBuilder();
-        stringBuilder.append("DEA:");
-        stringBuilder.append(view.formatValue(point.getDea()));
-        canvas.drawText(stringBuilder.toString(),  x, y, this.mDEAPaint);
-    }
-
-    @Override
-    public float getMaxValue(IMACD point) {
-        return Math.max(point.getMacd(), Math.max(point.getDea(), point.getDif()));
+        int generation = view.getLegendGeneration();
+        LegendCache.Layout layout = mLegendCache.get(position, generation, 0);
+        if (layout == null) {
+            layout = mLegendCache.begin(position, generation, 0);
+            IMACD point = (IMACD) view.getItem(position);
+            String text = String.format("MACD(%s,%s,%s)  ", new Object[]{view.configManager.macdS, view.configManager.macdL, view.configManager.macdM});
+            layout.add(text, view.getTextPaint());
+            String str = "  ";
+            layout.add("MACD:" + view.formatValue(point.getMacd()) + str, this.mMACDPaint);
+            layout.add("DIF:" + view.formatValue(point.getDif()) + str, this.mDIFPaint);
+            layout.add("DEA:" + view.formatValue(point.getDea()), this.mDEAPaint);
+        }
+        layout.draw(canvas, x, y);
     }
 
     @Override
-    public float getMinValue(IMACD point) {
-        return Math.min(point.getMacd(), Math.min(point.getDea(), point.getDif()));
+    public void extendRange(IMACD point, float[] range) {
+        range[RANGE_MAX] = Math.max(range[RANGE_MAX], Math.max(point.getMacd(), Math.max(point.getDea(), point.getDif())));
+        range[RANGE_MIN] = Math.min(range[RANGE_MIN], Math.min(point.getMacd(), Math.min(point.getDea(), point.getDif())));
     }
 
     @Override
@@ -109,7 +98,7 @@ public class MACDDraw implements IChartDraw<IMACD> {
     private void drawMACD(Canvas canvas, BaseKLineChartView view, float x, float macd) {
         float macdy = view.getChildY(macd);
         float candleWidth = view.configManager.macdCandleWidth;
-        float r = candleWidth / 2;
+        float r = candleWidth * view.getLodBucketSize() / 2;
         float zeroy = view.getChildY(0);
         if (macd > 0) {
             //               left   top   right  bottom
@@ -13,7 +13,6 @@ import com.github.fujianlian.klinechart.entity.ICandle;
 import com.github.fujianlian.klinechart.formatter.ValueFormatter;
 import com.github.fujianlian.klinechart.utils.ViewUtil;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +35,12 @@ public class MainDraw implements IChartDraw<ICandle> {
     private Paint ma30Paint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint primaryPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
+    private final LegendCache mLegendCache = new LegendCache();
+
+    //分时线逐根读取时复用的实体
+    private final KLineEntity mMinuteCurrent = new KLineEntity();
+    private final KLineEntity mMinuteLast = new KLineEntity();
+
     private Paint minuteGradientPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
     private Paint mSelectorTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
@@ -100,10 +105,10 @@ public class MainDraw implements IChartDraw<ICandle> {
 
         Path path = new Path();
         for (int i = startIndex; i <= stopIndex; i++) {
-            ICandle currentPoint = (ICandle) view.getItem(i);
+            ICandle currentPoint = view.readItem(i, mMinuteCurrent);
             float currentX = view.getItemMiddleScrollX(i);
             float currentY = view.yFromValue(currentPoint.getClosePrice());
-            ICandle lastPoint = i == 0 ? currentPoint : (ICandle) view.getItem(i - 1);
+            ICandle lastPoint = i == 0 ? currentPoint : view.readItem(i - 1, mMinuteLast);
 
             float lastX = i == 0 ? currentX : view.getItemMiddleScrollX(i - 1);
             float lastY = view.yFromValue(lastPoint.getClosePrice());
@@ -129,7 +134,9 @@ public class MainDraw implements IChartDraw<ICandle> {
         if (view.isMinute) {
             return;
         }
-        drawCandle(view, canvas, curX, curPoint.getHighPrice(), curPoint.getLowPrice(), curPoint.getOpenPrice(), curPoint.getClosePrice());
+        if (!view.isDrawingLodEnvelope()) {
+            drawCandle(view, canvas, curX, curPoint.getHighPrice(), curPoint.getLowPrice(), curPoint.getOpenPrice(), curPoint.getClosePrice());
+        }
         if (primaryStatus == PrimaryStatus.MA) {
             KLineEntity lastItem = (KLineEntity) lastPoint;
             KLineEntity currentItem = (KLineEntity) curPoint;
@@ -163,84 +170,47 @@ public class MainDraw implements IChartDraw<ICandle> {
 
     @Override
     public void drawText(@NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position, float x, float y) {
-        KLineEntity point = (KLineEntity) view.getItem(position);
-        String text = "";
-        String space = "  ";
         if (view.isMinute) {
-
-        } else {
+            return;
+        }
+        int generation = view.getLegendGeneration();
+        int mode = primaryStatus == null ? -1 : primaryStatus.ordinal();
+        LegendCache.Layout layout = mLegendCache.get(position, generation, mode);
+        if (layout == null) {
+            layout = mLegendCache.begin(position, generation, mode);
+            KLineEntity point = (KLineEntity) view.getItem(position);
+            String space = "  ";
             if (primaryStatus == PrimaryStatus.MA) {
                 // Use the embedded indicator data from candlestick rather than config manager's empty list
                 for (int i = 0; i < point.maList.size(); i ++) {
                     HTKLineTargetItem targetItem = (HTKLineTargetItem) point.maList.get(i);
                     // Use the target item's index for color selection
                     int colorIndex = Math.min(targetItem.index, view.configManager.targetColorList.length - 1);
-                    this.primaryPaint.setColor(view.configManager.targetColorList[colorIndex]);
-                    StringBuilder stringBuilder = new StringBuilder();
-                    stringBuilder.append("MA");
-                    stringBuilder.append(targetItem.title);
-                    stringBuilder.append(":");
-                    stringBuilder.append(view.formatValue(targetItem.value));
-                    stringBuilder.append(space);
-                    text = stringBuilder.toString();
-                    canvas.drawText(text, x, y, this.primaryPaint);
-                    x += this.primaryPaint.measureText(text);
+                    String text = "MA" + targetItem.title + ":" + view.formatValue(targetItem.value) + space;
+                    layout.add(text, primaryPaint, view.configManager.targetColorList[colorIndex]);
                 }
             } else if (primaryStatus == PrimaryStatus.BOLL) {
                 if (point.getMb() != 0) {
-                    text = "BOLL:" + view.formatValue(point.getMb()) + space;
-                    this.primaryPaint.setColor(view.configManager.targetColorList[0]);
-                    canvas.drawText(text, x, y, primaryPaint);
-                    x += ma5Paint.measureText(text);
-                    text = "UB:" + view.formatValue(point.getUp()) + space;
-                    this.primaryPaint.setColor(view.configManager.targetColorList[1]);
-                    canvas.drawText(text, x, y, primaryPaint);
-                    x += ma10Paint.measureText(text);
-                    text = "LB:" + view.formatValue(point.getDn());
-                    this.primaryPaint.setColor(view.configManager.targetColorList[2]);
-                    canvas.drawText(text, x, y, primaryPaint);
+                    layout.add("BOLL:" + view.formatValue(point.getMb()) + space, primaryPaint, view.configManager.targetColorList[0], ma5Paint);
+                    layout.add("UB:" + view.formatValue(point.getUp()) + space, primaryPaint, view.configManager.targetColorList[1], ma10Paint);
+                    layout.add("LB:" + view.formatValue(point.getDn()), primaryPaint, view.configManager.targetColorList[2]);
                 }
             }
         }
+        layout.draw(canvas, x, y);
     }
 
-    public float findIsMaxValue(ICandle point, final boolean isMax) {
-        final KLineEntity item = (KLineEntity) point;
-        ArrayList<Float> valueList = new ArrayList<Float>(){{
-            add(item.getHighPrice());
-            add(item.getLowPrice());
-        }};
+    @Override
+    public void extendRange(ICandle point, float[] range) {
+        KLineEntity item = (KLineEntity) point;
+        range[RANGE_MAX] = Math.max(range[RANGE_MAX], Math.max(item.getHighPrice(), item.getLowPrice()));
+        range[RANGE_MIN] = Math.min(range[RANGE_MIN], Math.min(item.getHighPrice(), item.getLowPrice()));
         if (primaryStatus == PrimaryStatus.MA) {
-            valueList.add(item.targetListISMax(item.maList, isMax));
+            item.extendTargetListRange(item.maList, range);
         } else if (primaryStatus == PrimaryStatus.BOLL) {
-            valueList.add(item.getMb());
-            valueList.add(item.getUp());
-            valueList.add(item.getDn());
-        }
-        float max = Float.MIN_VALUE;
-        float min = Float.MAX_VALUE;
-        for (float value: valueList) {
-            if (isMax) {
-                max = Math.max(max, value);
-            } else {
-                min = Math.min(min, value);
-            }
-        }
-        if (isMax) {
-            return max;
+            range[RANGE_MAX] = Math.max(range[RANGE_MAX], Math.max(item.getMb(), Math.max(item.getUp(), item.getDn())));
+            range[RANGE_MIN] = Math.min(range[RANGE_MIN], Math.min(item.getMb(), Math.min(item.getUp(), item.getDn())));
         }
-        return min;
-
-    }
-
-    @Override
-    public float getMaxValue(final ICandle point) {
-        return findIsMaxValue(point, true);
-    }
-
-    @Override
-    public float getMinValue(ICandle point) {
-        return findIsMaxValue(point, false);
     }
 
     @Override
@@ -263,7 +233,7 @@ public class MainDraw implements IChartDraw<ICandle> {
         low = view.yFromValue(low);
         open = view.yFromValue(open);
         close = view.yFromValue(close);
-        float r = mCandleWidth / 2;
+        float r = mCandleWidth * view.getLodBucketSize() / 2;
         float lineR = mCandleLineWidth / 2;
         float cornerRadius = view.configManager.candleCornerRadius;
 
@@ -31,6 +31,8 @@ public class RSIDraw implements IChartDraw<IRSI> {
     private Paint mRSI3Paint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint primaryPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
+    private final LegendCache mLegendCache = new LegendCache();
+
     public RSIDraw(BaseKLineChartView view) {
         mContext = view.getContext();
     }
@@ -53,36 +55,27 @@ public class RSIDraw implements IChartDraw<IRSI> {
 
     @Override
     public void drawText(@NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position, float x, float y) {
-        KLineEntity point = (KLineEntity) view.getItem(position);
-        String text = "";
-        // Use the embedded indicator data from candlestick rather than config manager's list
-        for (int i = 0; i < point.rsiList.size(); i++) {
-            HTKLineTargetItem targetItem = (HTKLineTargetItem) point.rsiList.get(i);
-            // Use the target item's index for color selection
-            int colorIndex = Math.min(targetItem.index, view.configManager.targetColorList.length - 1);
-            this.primaryPaint.setColor(view.configManager.targetColorList[colorIndex]);
-            StringBuilder stringBuilder = new StringBuilder();
-            stringBuilder.append("RSI(");
-            stringBuilder.append(targetItem.title);
-            stringBuilder.append("):");
-            stringBuilder.append(view.formatValue(targetItem.value));
-            stringBuilder.append("  ");
-            text = stringBuilder.toString();
-            canvas.drawText(text, x, y, this.primaryPaint);
-            x += this.primaryPaint.measureText(text);
+        int generation = view.getLegendGeneration();
+        LegendCache.Layout layout = mLegendCache.get(position, generation, 0);
+        if (layout == null) {
+            layout = mLegendCache.begin(position, generation, 0);
+            KLineEntity point = (KLineEntity) view.getItem(position);
+            // Use the embedded indicator data from candlestick rather than config manager's list
+            for (int i = 0; i < point.rsiList.size(); i++) {
+                HTKLineTargetItem targetItem = (HTKLineTargetItem) point.rsiList.get(i);
+                // Use the target item's index for color selection
+                int colorIndex = Math.min(targetItem.index, view.configManager.targetColorList.length - 1);
+                String text = "RSI(" + targetItem.title + "):" + view.formatValue(targetItem.value) + "  ";
+                layout.add(text, primaryPaint, view.configManager.targetColorList[colorIndex]);
+            }
         }
+        layout.draw(canvas, x, y);
     }
 
     @Override
-    public float getMaxValue(IRSI point) {
-        KLineEntity item = (KLineEntity) point;
-        return item.targetListISMax(item.rsiList, true);
-    }
-
-    @Override
-    public float getMinValue(IRSI point) {
+    public void extendRange(IRSI point, float[] range) {
         KLineEntity item = (KLineEntity) point;
-        return item.targetListISMax(item.rsiList, false);
+        item.extendTargetListRange(item.rsiList, range);
     }
 
     @Override
@@ -34,6 +34,8 @@ public class VolumeDraw implements IChartDraw<IVolume> {
     private Paint ma10Paint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint primaryPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
+    private final LegendCache mLegendCache = new LegendCache();
+
     public VolumeDraw(BaseKLineChartView view) {
         mContext = view.getContext();
     }
@@ -48,7 +50,9 @@ public class VolumeDraw implements IChartDraw<IVolume> {
             @Nullable IVolume lastPoint, @NonNull IVolume curPoint, float lastX, float curX,
             @NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position) {
 
-        drawHistogram(canvas, curPoint, lastPoint, curX, view, position);
+        if (!view.isDrawingLodEnvelope()) {
+            drawHistogram(canvas, curPoint, lastPoint, curX, view, position);
+        }
         KLineEntity lastItem = (KLineEntity) lastPoint;
         KLineEntity currentItem = (KLineEntity) curPoint;
         // Use the embedded indicator data from candlestick rather than config manager's empty list
@@ -71,7 +75,7 @@ public class VolumeDraw implements IChartDraw<IVolume> {
         int candleColor = view.configManager.minuteVolumeCandleColor;
         primaryPaint.setColor(candleColor);
 
-        float r = candleWidth / 2;
+        float r = candleWidth * view.getLodBucketSize() / 2;
         float top = view.getVolY(curPoint.getVolume());
         int bottom = view.getVolRect().bottom;
         if (curPoint.getClosePrice() >= curPoint.getOpenPrice()) {//涨
@@ -86,68 +90,46 @@ public class VolumeDraw implements IChartDraw<IVolume> {
     public void drawText(
             @NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position, float x, float y) {
         IValueFormatter formatter = getValueFormatter();
-        KLineEntity point = (KLineEntity) view.getItem(position);
         if (formatter instanceof ValueFormatter) {
-            ValueFormatter valueFormatter = (ValueFormatter)formatter;
-            String space = "  ";
-            // Handle NaN volume value to prevent formatting crashes
-            float volume = point.getVolume();
-            String volumeText = Float.isNaN(volume) ? "--" : valueFormatter.formatVolume(volume);
-            String text = "VOL:" + volumeText + "  ";
-            primaryPaint.setColor(view.configManager.targetColorList[5]);
-            canvas.drawText(text, x, y, primaryPaint);
-            x += view.getTextPaint().measureText(text);
-            // Use the embedded indicator data from candlestick rather than config manager's list
-            for (int i = 0; i < point.maVolumeList.size(); i++) {
-                HTKLineTargetItem targetItem = (HTKLineTargetItem) point.maVolumeList.get(i);
-                // Use the target item's index for color selection
-                int colorIndex = Math.min(targetItem.index, view.configManager.targetColorList.length - 1);
-                primaryPaint.setColor(view.configManager.targetColorList[colorIndex]);
-                StringBuilder stringBuilder = new StringBuilder();
-                stringBuilder.append("MA");
-                stringBuilder.append(targetItem.title);
-                stringBuilder.append(":");
-
-                // Handle NaN values to prevent formatting crashes
-                float value = targetItem.value;
-                if (Float.isNaN(value)) {
-                    stringBuilder.append("--");
-                } else {
-                    stringBuilder.append(valueFormatter.formatVolume(value));
+            int generation = view.getLegendGeneration();
+            LegendCache.Layout layout = mLegendCache.get(position, generation, 0);
+            if (layout == null) {
+                layout = mLegendCache.begin(position, generation, 0);
+                KLineEntity point = (KLineEntity) view.getItem(position);
+                ValueFormatter valueFormatter = (ValueFormatter)formatter;
+                String space = "  ";
+                // Handle NaN volume value to prevent formatting crashes
+                float volume = point.getVolume();
+                String volumeText = Float.isNaN(volume) ? "--" : valueFormatter.formatVolume(volume);
+                layout.add("VOL:" + volumeText + "  ", primaryPaint, view.configManager.targetColorList[5], view.getTextPaint());
+                // Use the embedded indicator data from candlestick rather than config manager's list
+                for (int i = 0; i < point.maVolumeList.size(); i++) {
+                    HTKLineTargetItem targetItem = (HTKLineTargetItem) point.maVolumeList.get(i);
+                    // Use the target item's index for color selection
+                    int colorIndex = Math.min(targetItem.index, view.configManager.targetColorList.length - 1);
+                    // Handle NaN values to prevent formatting crashes
+                    float value = targetItem.value;
+                    String valueText = Float.isNaN(value) ? "--" : valueFormatter.formatVolume(value);
+                    String text = "MA" + targetItem.title + ":" + valueText + space;
+                    layout.add(text, primaryPaint, view.configManager.targetColorList[colorIndex]);
                 }
-
-                stringBuilder.append(space);
-                text = stringBuilder.toString();
-                canvas.drawText(text, x, y, this.primaryPaint);
-                x += primaryPaint.measureText(text);
             }
+            layout.draw(canvas, x, y);
         }
     }
 
     @Override
-    public float getMaxValue(IVolume point) {
-        KLineEntity item = (KLineEntity) point;
-        float volume = point.getVolume();
-        float maMax = item.targetListISMax(item.maVolumeList, true);
-
-        // Handle NaN values to prevent crashes
-        if (Float.isNaN(volume)) volume = 0f;
-        if (Float.isNaN(maMax)) maMax = 0f;
-
-        return Math.max(volume, maMax);
-    }
-
-    @Override
-    public float getMinValue(IVolume point) {
+    public void extendRange(IVolume point, float[] range) {
         KLineEntity item = (KLineEntity) point;
         float volume = point.getVolume();
-        float maMin = item.targetListISMax(item.maVolumeList, false);
 
         // Handle NaN values to prevent crashes
         if (Float.isNaN(volume)) volume = 0f;
-        if (Float.isNaN(maMin)) maMin = 0f;
 
-        return Math.min(volume, maMin);
+        range[RANGE_MAX] = Math.max(range[RANGE_MAX], volume);
+        range[RANGE_MIN] = Math.min(range[RANGE_MIN], volume);
+        // NaN moving averages are skipped
+        item.extendTargetListRange(item.maVolumeList, range);
     }
 
     @Override
@@ -29,6 +29,8 @@ public class WRDraw implements IChartDraw<IWR> {
     private Paint mRPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private Paint primaryPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
+    private final LegendCache mLegendCache = new LegendCache();
+
     public WRDraw(BaseKLineChartView view) {
         mContext = view.getContext();
     }
@@ -51,36 +53,27 @@ public class WRDraw implements IChartDraw<IWR> {
 
     @Override
     public void drawText(@NonNull Canvas canvas, @NonNull BaseKLineChartView view, int position, float x, float y) {
-        KLineEntity point = (KLineEntity) view.getItem(position);
-        String text = "";
-        // Use the embedded indicator data from candlestick rather than config manager's list
-        for (int i = 0; i < point.wrList.size(); i++) {
-            HTKLineTargetItem targetItem = (HTKLineTargetItem) point.wrList.get(i);
-            // Use the target item's index for color selection
-            int colorIndex = Math.min(targetItem.index, view.configManager.targetColorList.length - 1);
-            this.primaryPaint.setColor(view.configManager.targetColorList[colorIndex]);
-            StringBuilder stringBuilder = new StringBuilder();
-            stringBuilder.append("WR(");
-            stringBuilder.append(targetItem.title);
-            stringBuilder.append("):");
-            stringBuilder.append(view.formatValue(targetItem.value));
-            stringBuilder.append("  ");
-            text = stringBuilder.toString();
-            canvas.drawText(text, x, y, this.primaryPaint);
-            x += this.primaryPaint.measureText(text);
+        int generation = view.getLegendGeneration();
+        LegendCache.Layout layout = mLegendCache.get(position, generation, 0);
+        if (layout == null) {
+            layout = mLegendCache.begin(position, generation, 0);
+            KLineEntity point = (KLineEntity) view.getItem(position);
+            // Use the embedded indicator data from candlestick rather than config manager's list
+            for (int i = 0; i < point.wrList.size(); i++) {
+                HTKLineTargetItem targetItem = (HTKLineTargetItem) point.wrList.get(i);
+                // Use the target item's index for color selection
+                int colorIndex = Math.min(targetItem.index, view.configManager.targetColorList.length - 1);
+                String text = "WR(" + targetItem.title + "):" + view.formatValue(targetItem.value) + "  ";
+                layout.add(text, primaryPaint, view.configManager.targetColorList[colorIndex]);
+            }
         }
+        layout.draw(canvas, x, y);
     }
 
     @Override
-    public float getMaxValue(IWR point) {
-        KLineEntity item = (KLineEntity) point;
-        return item.targetListISMax(item.wrList, true);
-    }
-
-    @Override
-    public float getMinValue(IWR point) {
+    public void extendRange(IWR point, float[] range) {
         KLineEntity item = (KLineEntity) point;
-        return item.targetListISMax(item.wrList, false);
+        item.extendTargetListRange(item.wrList, range);
     }
 
     @Override
@@ -42,7 +42,108 @@ public class ValueFormatter implements IValueFormatter {
         }
     }
 
+    private static final int CACHE_SIZE = 256;
+
+    // Direct-mapped, each slot keeps the most recently formatted value that hashes to it
+    private static final CacheEntry[] sCache = new CacheEntry[CACHE_SIZE];
+
+    private static final class CacheEntry {
+
+        final long key;
+
+        final String text;
+
+        CacheEntry(long key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Keep rightLength decimals of value, truncated not rounded and padded with zeros,
+     * without a decimal point when rightLength is 0. Same result as {@link #formatDecimal},
+     * the digits of String.valueOf(value) are cut directly instead of going through BigDecimal
+     */
     public static String format(float value, int rightLength, boolean fillzero) {
+        if (rightLength < 0 || Float.isNaN(value) || Float.isInfinite(value)) {
+            return formatDecimal(value, rightLength, fillzero);
+        }
+        long key = ((long) rightLength << 32) | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+        int hash = (int) (key ^ (key >>> 29)) * 0x9E3779B9;
+        int slot = hash >>> 24 & (CACHE_SIZE - 1);
+        CacheEntry entry = sCache[slot];
+        if (entry != null && entry.key == key) {
+            return entry.text;
+        }
+        String text = formatFixed(value, rightLength);
+        sCache[slot] = new CacheEntry(key, text);
+        return text;
+    }
+
+    private static String formatFixed(float value, int rightLength) {
+        // Like "-123.45", "1.0E-5" or "3.4028235E38"
+        String numberString = String.valueOf(value);
+        int length = numberString.length();
+        char[] digits = new char[length];
+        int digitCount = 0;
+        int fractionCount = 0;
+        int exponent = 0;
+        boolean inFraction = false;
+        for (int i = 0; i < length; i++) {
+            char c = numberString.charAt(i);
+            if (c >= '0' && c <= '9') {
+                // Leading zeros are dropped, as BigDecimal keeps the digits in a BigInteger
+                if (digitCount > 0 || c != '0') {
+                    digits[digitCount++] = c;
+                }
+                if (inFraction) {
+                    fractionCount++;
+                }
+            } else if (c == '.') {
+                inFraction = true;
+            } else if (c == 'E') {
+                exponent = Integer.parseInt(numberString.substring(i + 1));
+                break;
+            }
+        }
+        if (digitCount == 0) {
+            digits[digitCount++] = '0';
+        }
+        // Digits right of the decimal point once the exponent is applied, negative means trailing zeros
+        int scale = fractionCount - exponent;
+        int integerCount = digitCount - Math.max(scale, 0);
+
+        char[] chars = new char[Math.max(integerCount, 1) + Math.max(-scale, 0) + rightLength + 2];
+        int index = 0;
+        // BigDecimal drops the sign of -0.0
+        if (value < 0 && !(digitCount == 1 && digits[0] == '0')) {
+            chars[index++] = '-';
+        }
+        if (integerCount <= 0) {
+            chars[index++] = '0';
+        } else {
+            for (int i = 0; i < integerCount; i++) {
+                chars[index++] = digits[i];
+            }
+            for (int i = scale; i < 0; i++) {
+                chars[index++] = '0';
+            }
+        }
+        if (rightLength > 0) {
+            chars[index++] = '.';
+            for (int i = 0; i < rightLength; i++) {
+                // Position of this decimal in digits, before 0 are the zeros after the point
+                int position = integerCount + i;
+                chars[index++] = position >= 0 && position < digitCount ? digits[position] : '0';
+            }
+        }
+        return new String(chars, 0, index);
+    }
+
+    /**
+     * 原来的 BigDecimal 实现, 处理快速路径不支持的 NaN/Infinity 和负的小数位数, 也用来对比结果和耗时
+     */
+    public static String formatDecimal(float value, int rightLength, boolean fillzero) {
     	// NumberFormat format = NumberFormat.getInstance();
      //    format.setGroupingUsed(false);
      //    format.setRoundingMode(RoundingMode.DOWN);
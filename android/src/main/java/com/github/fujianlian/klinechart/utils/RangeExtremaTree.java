@@ -0,0 +1,165 @@
+package com.github.fujianlian.klinechart.utils;
+
+import java.util.Arrays;
+
+/**
+ * 区间最大值/最小值
+ * Bottom-up segment tree over a fixed number of leaves, each leaf holding a max and a min.
+ * A point update costs O(log n), refreshing a run of k leaves O(k + log n) and a range
+ * query O(log n). Ties resolve to the leftmost leaf.
+ */
+public class RangeExtremaTree {
+
+    private int mLeafCount;
+
+    private float[] mMax = new float[0];
+    private float[] mMin = new float[0];
+    private int[] mMaxLeaf = new int[0];
+    private int[] mMinLeaf = new int[0];
+
+    private float mQueryMax;
+    private float mQueryMin;
+    private int mQueryMaxLeaf;
+    private int mQueryMinLeaf;
+
+    /**
+     * Clear every leaf, reallocating only when the capacity grows
+     *
+     * @param capacity number of leaves needed, rounded up to a power of two
+     */
+    public void reset(int capacity) {
+        int leafCount = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        if (leafCount > mLeafCount) {
+            mLeafCount = leafCount;
+            mMax = new float[leafCount * 2];
+            mMin = new float[leafCount * 2];
+            mMaxLeaf = new int[leafCount * 2];
+            mMinLeaf = new int[leafCount * 2];
+        }
+        Arrays.fill(mMax, Float.NEGATIVE_INFINITY);
+        Arrays.fill(mMin, Float.POSITIVE_INFINITY);
+        Arrays.fill(mMaxLeaf, Integer.MAX_VALUE);
+        Arrays.fill(mMinLeaf, Integer.MAX_VALUE);
+    }
+
+    public int capacity() {
+        return mLeafCount;
+    }
+
+    /**
+     * Store a leaf without touching its parents, follow with {@link #rebuild(int, int)}
+     */
+    public void set(int leaf, float max, float min) {
+        int node = leaf + mLeafCount;
+        mMax[node] = max;
+        mMin[node] = min;
+        mMaxLeaf[node] = leaf;
+        mMinLeaf[node] = leaf;
+    }
+
+    /**
+     * Recompute the parents of the leaves in [from, to)
+     */
+    public void rebuild(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int low = (from + mLeafCount) >> 1;
+        int high = (to - 1 + mLeafCount) >> 1;
+        while (low > 0) {
+            for (int node = low; node <= high; node++) {
+                pull(node);
+            }
+            low >>= 1;
+            high >>= 1;
+        }
+    }
+
+    /**
+     * Query the leaves in [from, to], read the result with the getters
+     */
+    public void query(int from, int to) {
+        mQueryMax = Float.NEGATIVE_INFINITY;
+        mQueryMin = Float.POSITIVE_INFINITY;
+        mQueryMaxLeaf = Integer.MAX_VALUE;
+        mQueryMinLeaf = Integer.MAX_VALUE;
+        int low = from + mLeafCount;
+        int high = to + mLeafCount + 1;
+        while (low < high) {
+            if ((low & 1) == 1) {
+                take(low++);
+            }
+            if ((high & 1) == 1) {
+                take(--high);
+            }
+            low >>= 1;
+            high >>= 1;
+        }
+    }
+
+    public float getMax() {
+        return mQueryMax;
+    }
+
+    public float getMin() {
+        return mQueryMin;
+    }
+
+    /**
+     * Leftmost leaf holding {@link #getMax()}
+     */
+    public int getMaxLeaf() {
+        return mQueryMaxLeaf;
+    }
+
+    /**
+     * Leftmost leaf holding {@link #getMin()}
+     */
+    public int getMinLeaf() {
+        return mQueryMinLeaf;
+    }
+
+    private void pull(int node) {
+        int left = node << 1;
+        int right = left + 1;
+        if (prefer(mMax[right], mMaxLeaf[right], mMax[left], mMaxLeaf[left], true)) {
+            mMax[node] = mMax[right];
+            mMaxLeaf[node] = mMaxLeaf[right];
+        } else {
+            mMax[node] = mMax[left];
+            mMaxLeaf[node] = mMaxLeaf[left];
+        }
+        if (prefer(mMin[right], mMinLeaf[right], mMin[left], mMinLeaf[left], false)) {
+            mMin[node] = mMin[right];
+            mMinLeaf[node] = mMinLeaf[right];
+        } else {
+            mMin[node] = mMin[left];
+            mMinLeaf[node] = mMinLeaf[left];
+        }
+    }
+
+    private void take(int node) {
+        if (prefer(mMax[node], mMaxLeaf[node], mQueryMax, mQueryMaxLeaf, true)) {
+            mQueryMax = mMax[node];
+            mQueryMaxLeaf = mMaxLeaf[node];
+        }
+        if (prefer(mMin[node], mMinLeaf[node], mQueryMin, mQueryMinLeaf, false)) {
+            mQueryMin = mMin[node];
+            mQueryMinLeaf = mMinLeaf[node];
+        }
+    }
+
+    // NaN wins like it does with Math.max/Math.min, equal values go to the lower leaf
+    private static boolean prefer(float value, int leaf, float current, int currentLeaf, boolean isMax) {
+        if (Float.isNaN(current)) {
+            return Float.isNaN(value) && leaf < currentLeaf;
+        }
+        if (Float.isNaN(value)) {
+            return true;
+        }
+        if (value == current) {
+            return leaf < currentLeaf;
+        }
+        return isMax ? value > current : value < current;
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.fujianlian.klinechart.utils;
+
+/**
+ * 滑动窗口最高价/最低价
+ * Monotonic deques over the last {@code window} pushed bars, so the highest high and
+ * lowest low cost amortized O(1) per bar instead of rescanning the window.
+ */
+public class RollingExtrema {
+
+    private int mWindow;
+
+    // Ring buffers holding the candidate indexes and values of each deque
+    private int[] mMaxIndex;
+    private float[] mMaxValue;
+    private int mMaxHead;
+    private int mMaxSize;
+
+    private int[] mMinIndex;
+    private float[] mMinValue;
+    private int mMinHead;
+    private int mMinSize;
+
+    private int mCount;
+
+    public RollingExtrema(int window) {
+        reset(window);
+    }
+
+    /**
+     * Clear the window, reallocating only when the length changes
+     *
+     * @param window number of bars covered, at least 1
+     */
+    public void reset(int window) {
+        window = Math.max(1, window);
+        if (mWindow != window) {
+            mWindow = window;
+            mMaxIndex = new int[window];
+            mMaxValue = new float[window];
+            mMinIndex = new int[window];
+            mMinValue = new float[window];
+        }
+        mMaxHead = 0;
+        mMaxSize = 0;
+        mMinHead = 0;
+        mMinSize = 0;
+        mCount = 0;
+    }
+
+    public int getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * Slide the window forward by one bar
+     */
+    public void push(float high, float low) {
+        int index = mCount++;
+        int expired = index - mWindow;
+
+        while (mMaxSize > 0 && mMaxIndex[mMaxHead] <= expired) {
+            mMaxHead = (mMaxHead + 1) % mWindow;
+            mMaxSize--;
+        }
+        while (mMaxSize > 0 && mMaxValue[(mMaxHead + mMaxSize - 1) % mWindow] <= high) {
+            mMaxSize--;
+        }
+        int tail = (mMaxHead + mMaxSize) % mWindow;
+        mMaxIndex[tail] = index;
+        mMaxValue[tail] = high;
+        mMaxSize++;
+
+        while (mMinSize > 0 && mMinIndex[mMinHead] <= expired) {
+            mMinHead = (mMinHead + 1) % mWindow;
+            mMinSize--;
+        }
+        while (mMinSize > 0 && mMinValue[(mMinHead + mMinSize - 1) % mWindow] >= low) {
+            mMinSize--;
+        }
+        tail = (mMinHead + mMinSize) % mWindow;
+        mMinIndex[tail] = index;
+        mMinValue[tail] = low;
+        mMinSize++;
+    }
+
+    /**
+     * Highest value in the window, Float.MIN_VALUE when empty
+     */
+    public float getMax() {
+        return mMaxSize > 0 ? mMaxValue[mMaxHead] : Float.MIN_VALUE;
+    }
+
+    /**
+     * Lowest value in the window, Float.MAX_VALUE when empty
+     */
+    public float getMin() {
+        return mMinSize > 0 ? mMinValue[mMinHead] : Float.MAX_VALUE;
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KDJ and WR with the monotonic deques of RollingExtrema against the window rescan they
+ * replaced, at 10k, 100k and 1M bars.
+ */
+public class DataHelperBenchmarkTest {
+
+    private static final int[] SIZES = {10000, 100000, 1000000};
+
+    private static final int[] PERIODS = {14, 60};
+
+    private static List<KLineEntity> randomWalk(int count, long seed) {
+        Random random = new Random(seed);
+        List<KLineEntity> list = new ArrayList<>(count);
+        float price = 100;
+        for (int i = 0; i < count; i++) {
+            KLineEntity entity = new KLineEntity();
+            entity.Open = price;
+            price += (random.nextFloat() - 0.5f) * 2;
+            // Kept positive, both scans start the highest high at Float.MIN_VALUE
+            if (price < 2) {
+                price = 4 - price;
+            }
+            entity.Close = price;
+            entity.High = Math.max(entity.Open, entity.Close) + random.nextFloat();
+            entity.Low = Math.min(entity.Open, entity.Close) - random.nextFloat();
+            list.add(entity);
+        }
+        return list;
+    }
+
+    // The calculation before RollingExtrema, rescanning the window for every bar
+
+    private static void rescanKDJ(List<KLineEntity> dataList, int n, float[] k, float[] d) {
+        float lastK = 0;
+        float lastD = 0;
+        for (int i = 0; i < dataList.size(); i++) {
+            KLineEntity point = dataList.get(i);
+            float max = Float.MIN_VALUE;
+            float min = Float.MAX_VALUE;
+            for (int index = Math.max(0, i - n + 1); index <= i; index++) {
+                max = Math.max(max, dataList.get(index).getHighPrice());
+                min = Math.min(min, dataList.get(index).getLowPrice());
+            }
+            float rsv = 100f * (point.getClosePrice() - min) / (max - min);
+            if (Float.isNaN(rsv)) {
+                rsv = 0f;
+            }
+            if (i == 0) {
+                lastK = 50;
+                lastD = 50;
+            } else {
+                lastK = (rsv + 2f * lastK) / 3f;
+                lastD = (lastK + 2f * lastD) / 3f;
+            }
+            k[i] = lastK;
+            d[i] = lastD;
+        }
+    }
+
+    private static void rescanWR(List<KLineEntity> dataList, int n, float[] r) {
+        for (int i = 0; i < dataList.size(); i++) {
+            float max = Float.MIN_VALUE;
+            float min = Float.MAX_VALUE;
+            for (int index = Math.max(0, i - n); index <= i; index++) {
+                max = Math.max(max, dataList.get(index).getHighPrice());
+                min = Math.min(min, dataList.get(index).getLowPrice());
+            }
+            float value = -100 * (max - dataList.get(i).getClosePrice()) / (max - min);
+            r[i] = Float.isNaN(value) ? 0 : value;
+        }
+    }
+
+    private static long dequeNanos(List<KLineEntity> dataList, int n) {
+        long start = System.nanoTime();
+        DataHelper.calculateKDJ(dataList, n);
+        DataHelper.calculateWR(dataList, n);
+        return System.nanoTime() - start;
+    }
+
+    private static long rescanNanos(List<KLineEntity> dataList, int n, float[] k, float[] d, float[] r) {
+        long start = System.nanoTime();
+        rescanKDJ(dataList, n, k, d);
+        rescanWR(dataList, n, r);
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void dequesMatchAndBeatTheRescan() {
+        List<KLineEntity> all = randomWalk(SIZES[SIZES.length - 1], 1);
+        float[] k = new float[all.size()];
+        float[] d = new float[all.size()];
+        float[] r = new float[all.size()];
+        // Warm up both so neither is measured in the interpreter
+        for (int round = 0; round < 10; round++) {
+            dequeNanos(all.subList(0, SIZES[0]), PERIODS[0]);
+            rescanNanos(all.subList(0, SIZES[0]), PERIODS[0], k, d, r);
+        }
+        long dequeLongest = 0;
+        long rescanLongest = 0;
+        for (int n : PERIODS) {
+            for (int size : SIZES) {
+                List<KLineEntity> dataList = all.subList(0, size);
+                long deque = dequeNanos(dataList, n);
+                long rescan = rescanNanos(dataList, n, k, d, r);
+                System.out.println("bars=" + size + " n=" + n + " deque=" + deque / 1000 + "us rescan=" + rescan / 1000 + "us");
+                if (n == PERIODS[PERIODS.length - 1] && size == SIZES[SIZES.length - 1]) {
+                    dequeLongest = deque;
+                    rescanLongest = rescan;
+                }
+            }
+            // Same values as the rescan, the deques only change how the extrema are found
+            for (int i = n + 1; i < all.size(); i += 997) {
+                KLineEntity point = all.get(i);
+                assertEquals("k " + i, k[i], point.k, 0f);
+                assertEquals("d " + i, d[i], point.d, 0f);
+                assertEquals("r " + i, r[i], point.r, 0f);
+            }
+        }
+        assertTrue("deque " + dequeLongest + "ns, rescan " + rescanLongest + "ns", dequeLongest < rescanLongest);
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cost of one tick on the last bar against the length of the history, the engine against
+ * the full recompute of DataHelper the chart did before.
+ */
+public class HTKLineIndicatorEngineBenchmarkTest {
+
+    private static final int[] HISTORY_SIZES = {1000, 10000, 100000};
+
+    private static List<KLineEntity> randomWalk(int count, long seed) {
+        Random random = new Random(seed);
+        List<KLineEntity> list = new ArrayList<>(count);
+        float price = 100;
+        for (int i = 0; i < count; i++) {
+            KLineEntity entity = new KLineEntity();
+            entity.id = i;
+            entity.time = i;
+            entity.Open = price;
+            price += (random.nextFloat() - 0.5f) * 2;
+            entity.Close = price;
+            entity.High = Math.max(entity.Open, entity.Close) + random.nextFloat();
+            entity.Low = Math.min(entity.Open, entity.Close) - random.nextFloat();
+            entity.Volume = random.nextFloat() * 1000;
+            list.add(entity);
+        }
+        return list;
+    }
+
+    private static List<HTKLineTargetItem> targets(int... periods) {
+        List<HTKLineTargetItem> itemList = new ArrayList<>();
+        for (int i = 0; i < periods.length; i++) {
+            itemList.add(new HTKLineTargetItem(String.valueOf(periods[i]), 0, true, i));
+        }
+        return itemList;
+    }
+
+    // Median nanoseconds of one updateLast over a few rounds of ticks
+    private static long engineTickNanos(int size) {
+        KLineColumnStore store = new KLineColumnStore(randomWalk(size, size));
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setTargetLists(targets(5, 10, 20, 30, 60), targets(5, 10), targets(6, 12, 24), targets(14));
+        engine.calculate(store);
+        int last = store.size() - 1;
+        float close = store.getFloat(KLineColumnStore.CLOSE, last);
+        int ticks = 2000;
+        long[] rounds = new long[7];
+        for (int round = 0; round < rounds.length; round++) {
+            long start = System.nanoTime();
+            for (int tick = 0; tick < ticks; tick++) {
+                store.setFloat(KLineColumnStore.CLOSE, last, close + (tick & 7) * 0.01f);
+                engine.updateLast(store);
+            }
+            rounds[round] = (System.nanoTime() - start) / ticks;
+        }
+        return median(rounds);
+    }
+
+    private static long fullRecomputeNanos(int size) {
+        List<KLineEntity> list = randomWalk(size, size);
+        KLineEntity last = list.get(list.size() - 1);
+        float close = last.Close;
+        long[] rounds = new long[5];
+        for (int round = 0; round < rounds.length; round++) {
+            last.Close = close + round * 0.01f;
+            long start = System.nanoTime();
+            DataHelper.calculate(list);
+            rounds[round] = System.nanoTime() - start;
+        }
+        return median(rounds);
+    }
+
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    @Test
+    public void tickCostDoesNotGrowWithHistory() {
+        // Warm up so the first size is not measured in the interpreter
+        engineTickNanos(HISTORY_SIZES[0]);
+        fullRecomputeNanos(HISTORY_SIZES[0]);
+        long[] engineNanos = new long[HISTORY_SIZES.length];
+        for (int n = 0; n < HISTORY_SIZES.length; n++) {
+            engineNanos[n] = engineTickNanos(HISTORY_SIZES[n]);
+            long fullNanos = fullRecomputeNanos(HISTORY_SIZES[n]);
+            System.out.println("bars=" + HISTORY_SIZES[n] + " engine tick=" + engineNanos[n] + "ns full recompute=" + fullNanos + "ns");
+        }
+        // A full recompute grows with the history, a tick must stay flat
+        long smallest = Math.max(engineNanos[0], 1);
+        long largest = engineNanos[engineNanos.length - 1];
+        assertTrue("tick at " + HISTORY_SIZES[HISTORY_SIZES.length - 1] + " bars took " + largest + "ns, at "
+                + HISTORY_SIZES[0] + " bars " + smallest + "ns", largest < smallest * 10);
+    }
+}
@@ -0,0 +1,323 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class HTKLineIndicatorEngineTest {
+
+    private static List<KLineEntity> randomWalk(int count, long seed) {
+        Random random = new Random(seed);
+        List<KLineEntity> list = new ArrayList<>();
+        float price = 100;
+        for (int i = 0; i < count; i++) {
+            KLineEntity entity = new KLineEntity();
+            entity.id = i;
+            entity.time = i;
+            entity.Open = price;
+            price += (random.nextFloat() - 0.5f) * 2;
+            entity.Close = price;
+            entity.High = Math.max(entity.Open, entity.Close) + random.nextFloat();
+            entity.Low = Math.min(entity.Open, entity.Close) - random.nextFloat();
+            entity.Volume = random.nextFloat() * 1000;
+            list.add(entity);
+        }
+        return list;
+    }
+
+    private static float[] values(KLineEntity entity) {
+        return new float[]{
+                entity.MA5Price, entity.MA10Price, entity.MA20Price, entity.MA30Price, entity.MA60Price,
+                entity.dif, entity.dea, entity.macd, entity.mb, entity.up, entity.dn, entity.rsi,
+                entity.k, entity.d, entity.j, entity.r, entity.MA5Volume, entity.MA10Volume
+        };
+    }
+
+    private static List<HTKLineTargetItem> targets(int... periods) {
+        List<HTKLineTargetItem> itemList = new ArrayList<>();
+        for (int i = 0; i < periods.length; i++) {
+            itemList.add(new HTKLineTargetItem(String.valueOf(periods[i]), 0, true, i));
+        }
+        return itemList;
+    }
+
+    @Test
+    public void fullRecomputeMatchesDataHelper() {
+        List<KLineEntity> expected = randomWalk(2000, 1);
+        DataHelper.calculate(expected);
+        KLineColumnStore store = new KLineColumnStore(randomWalk(2000, 1));
+        new HTKLineIndicatorEngine().calculate(store);
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("bar " + i, values(expected.get(i)), values(store.get(i)), 0f);
+        }
+    }
+
+    @Test
+    public void appendAndUpdateLastMatchFullRecompute() {
+        List<KLineEntity> expected = randomWalk(1500, 2);
+        DataHelper.calculate(expected);
+        List<KLineEntity> source = randomWalk(1500, 2);
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        List<KLineEntity> list = new ArrayList<>();
+        Random random = new Random(3);
+        int next = 0;
+        while (next < source.size()) {
+            for (int count = 1 + random.nextInt(7); count > 0 && next < source.size(); count--) {
+                list.add(source.get(next++));
+            }
+            engine.append(list);
+            // A tick that spikes the last bar, then the real value, must leave no trace in the running state
+            KLineEntity last = list.get(list.size() - 1);
+            float close = last.Close;
+            float high = last.High;
+            last.Close = close + 5;
+            last.High = high + 50;
+            engine.updateLast(list);
+            last.Close = close;
+            last.High = high;
+            engine.updateLast(list);
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("bar " + i, values(expected.get(i)), values(source.get(i)), 0f);
+        }
+    }
+
+    @Test
+    public void removeFirstKeepsTheRunningState() {
+        List<KLineEntity> expected = randomWalk(3000, 4);
+        DataHelper.calculate(expected);
+        List<KLineEntity> source = randomWalk(3000, 4);
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        KLineColumnStore store = new KLineColumnStore();
+        int removed = 0;
+        for (int i = 0; i < source.size(); i++) {
+            store.add(source.get(i));
+            engine.append(store);
+            if (store.size() > 500) {
+                int overflow = store.size() - 400;
+                store.subList(0, overflow).clear();
+                engine.removeFirst(overflow);
+                removed += overflow;
+            }
+        }
+        for (int i = 0; i < store.size(); i++) {
+            assertArrayEquals("bar " + (removed + i), values(expected.get(removed + i)), values(store.get(i)), 0f);
+        }
+    }
+
+    @Test
+    public void updateFromRewindsToALateBar() {
+        List<KLineEntity> source = randomWalk(400, 11);
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setTargetLists(targets(5, 20), targets(10), targets(6), targets(14));
+        KLineColumnStore store = new KLineColumnStore();
+        Random random = new Random(12);
+        for (int i = 0; i < source.size(); i++) {
+            store.add(source.get(i));
+            engine.append(store);
+            if (i > 20 && random.nextInt(3) == 0) {
+                // Correct one of the last bars, then put the real bar back
+                int index = store.size() - 1 - random.nextInt(HTKLineIndicatorEngine.ROLLBACK_BARS);
+                KLineEntity late = store.get(index);
+                late.Close += 7;
+                late.Low -= 40;
+                store.set(index, late);
+                engine.updateFrom(store, index);
+                store.set(index, source.get(index));
+                engine.updateFrom(store, index);
+            }
+        }
+        List<KLineEntity> expected = randomWalk(400, 11);
+        HTKLineIndicatorEngine fullEngine = new HTKLineIndicatorEngine();
+        fullEngine.setTargetLists(targets(5, 20), targets(10), targets(6), targets(14));
+        fullEngine.calculate(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            KLineEntity entity = store.get(i);
+            assertArrayEquals("bar " + i, values(expected.get(i)), values(entity), 1e-3f);
+            assertEquals(expected.get(i).wrList.get(0).value, entity.wrList.get(0).value, 1e-3f);
+            assertEquals(expected.get(i).maList.get(1).value, entity.maList.get(1).value, 1e-3f);
+        }
+    }
+
+    @Test
+    public void updateFromOlderThanTheRollbackRecomputes() {
+        List<KLineEntity> expected = randomWalk(300, 13);
+        DataHelper.calculate(expected);
+        KLineColumnStore store = new KLineColumnStore(randomWalk(300, 13));
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.calculate(store);
+        KLineEntity late = store.get(100);
+        late.Close += 5;
+        store.set(100, late);
+        engine.updateFrom(store, 100);
+        store.set(100, randomWalk(300, 13).get(100));
+        engine.updateFrom(store, 100);
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals("bar " + i, values(expected.get(i)), values(store.get(i)), 0f);
+        }
+    }
+
+    @Test
+    public void removeFirstBeyondTheLookbackRecomputes() {
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        KLineColumnStore store = new KLineColumnStore(randomWalk(200, 5));
+        engine.calculate(store);
+        // A page longer than the kept bars minus the lookback leaves too little history to continue
+        int overflow = store.size() - engine.getLookback() + 1;
+        store.subList(0, overflow).clear();
+        engine.removeFirst(overflow);
+        assertEquals(0, engine.getCount());
+
+        store.addAll(randomWalk(10, 6));
+        engine.append(store);
+        List<KLineEntity> expected = new ArrayList<>();
+        for (int i = 0; i < store.size(); i++) {
+            expected.add(store.get(i));
+        }
+        DataHelper.calculate(expected);
+        for (int i = 0; i < store.size(); i++) {
+            assertArrayEquals("bar " + i, values(expected.get(i)), values(store.get(i)), 0f);
+        }
+    }
+
+    @Test
+    public void targetListsFollowTheirPeriods() {
+        List<KLineEntity> list = randomWalk(300, 7);
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setTargetLists(targets(5, 10, 20), targets(5, 10), targets(6, 12, 24), targets(14));
+        engine.calculate(list);
+        for (int i = 0; i < list.size(); i++) {
+            KLineEntity entity = list.get(i);
+            assertEquals(3, entity.maList.size());
+            assertEquals("20", entity.maList.get(2).title);
+            assertEquals(2, entity.maList.get(2).index);
+            assertEquals(movingAverage(list, i, 20, false), entity.maList.get(2).value, 1e-3f);
+            assertEquals(movingAverage(list, i, 10, true), entity.maVolumeList.get(1).value, 1e-2f);
+            assertEquals(rsi(list, i, 12), entity.rsiList.get(1).value, 1e-3f);
+            assertEquals(wr(list, i, 14), entity.wrList.get(0).value, 1e-3f);
+        }
+    }
+
+    @Test
+    public void lookbackCoversTheLongestTarget() {
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setTargetLists(targets(5), targets(5), targets(120), targets(14));
+        // RSI reads the close before the first change of its window
+        assertEquals(121, engine.getLookback());
+        engine.setTargetLists(targets(90), targets(5), targets(6), targets(14));
+        assertEquals(90, engine.getLookback());
+    }
+
+    @Test
+    public void targetListsSurviveUpdateLastAndRemoveFirst() {
+        List<KLineEntity> source = randomWalk(1200, 8);
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setTargetLists(targets(5, 30), targets(10), targets(24), targets(14, 28));
+        KLineColumnStore store = new KLineColumnStore();
+        int removed = 0;
+        for (int i = 0; i < source.size(); i++) {
+            store.add(source.get(i));
+            engine.append(store);
+            KLineEntity last = store.get(store.size() - 1);
+            last.Close += 3;
+            last.High += 30;
+            store.set(store.size() - 1, last);
+            engine.updateLast(store);
+            store.set(store.size() - 1, source.get(i));
+            engine.updateLast(store);
+            if (store.size() > 300) {
+                store.subList(0, 100).clear();
+                engine.removeFirst(100);
+                removed += 100;
+            }
+        }
+        for (int i = 0; i < store.size(); i++) {
+            KLineEntity entity = store.get(i);
+            int index = removed + i;
+            assertEquals(movingAverage(source, index, 30, false), entity.maList.get(1).value, 1e-3f);
+            assertEquals(movingAverage(source, index, 10, true), entity.maVolumeList.get(0).value, 1e-2f);
+            assertEquals(rsi(source, index, 24), entity.rsiList.get(0).value, 1e-3f);
+            assertEquals(wr(source, index, 28), entity.wrList.get(1).value, 1e-3f);
+        }
+    }
+
+    @Test
+    public void ticksOverwriteTheTargetListsInPlace() {
+        KLineColumnStore store = new KLineColumnStore(randomWalk(200, 9));
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setTargetLists(targets(5, 10), targets(5), targets(6), targets(14));
+        engine.calculate(store);
+        KLineEntity last = store.get(store.size() - 1);
+        List<HTKLineTargetItem> maList = last.maList;
+        HTKLineTargetItem item = maList.get(1);
+        last.Close += 10;
+        store.set(store.size() - 1, last);
+        engine.updateLast(store);
+        KLineEntity updated = store.get(store.size() - 1);
+        assertSame(maList, updated.maList);
+        assertSame(item, updated.maList.get(1));
+        assertEquals(movingAverage(store, store.size() - 1, 10, false), item.value, 1e-3f);
+
+        // A new bar that copied its neighbour's lists gets its own, the neighbour keeps its values
+        KLineEntity next = randomWalk(1, 10).get(0);
+        next.time = last.time + 1;
+        next.maList = updated.maList;
+        float previous = item.value;
+        store.add(next);
+        engine.append(store);
+        assertNotSame(maList, store.get(store.size() - 1).maList);
+        assertEquals(previous, store.get(store.size() - 2).maList.get(1).value, 0f);
+    }
+
+    // Reference formulas of the example app, rescanning the window for every bar
+
+    private static float movingAverage(List<KLineEntity> list, int index, int period, boolean volume) {
+        KLineEntity entity = list.get(index);
+        if (index < period - 1) {
+            return volume ? entity.Volume : entity.Close;
+        }
+        double sum = 0;
+        for (int i = index - period + 1; i <= index; i++) {
+            sum += volume ? list.get(i).Volume : list.get(i).Close;
+        }
+        return (float) (sum / period);
+    }
+
+    private static float rsi(List<KLineEntity> list, int index, int period) {
+        if (index < period) {
+            return 50;
+        }
+        double gains = 0;
+        double losses = 0;
+        for (int i = index - period + 1; i <= index; i++) {
+            double change = list.get(i).Close - list.get(i - 1).Close;
+            if (change > 0) {
+                gains += change;
+            } else {
+                losses -= change;
+            }
+        }
+        double rs = losses == 0 ? 100 : gains / losses;
+        return (float) (100 - 100 / (1 + rs));
+    }
+
+    private static float wr(List<KLineEntity> list, int index, int period) {
+        if (index < period - 1) {
+            return -50;
+        }
+        float highest = -Float.MAX_VALUE;
+        float lowest = Float.MAX_VALUE;
+        for (int i = index - period + 1; i <= index; i++) {
+            highest = Math.max(highest, list.get(i).High);
+            lowest = Math.min(lowest, list.get(i).Low);
+        }
+        return highest == lowest ? -50 : -((highest - list.get(index).Close) / (highest - lowest)) * 100;
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.fujianlian.klinechart;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Indicator polylines of one frame at several zoom levels, batched into drawLines per series
+ * against one drawLine per segment. The canvas only records the calls, so the times are the
+ * chart side of a frame; what a call costs on the RenderThread needs a device.
+ */
+public class HTKLineLineBatchBenchmarkTest {
+
+    // Visible bars from zoomed in to zoomed out, past that the level of detail buckets take over
+    private static final int[] VISIBLE_BARS = {50, 200, 800, 2000};
+
+    // 5 MA lines on the main chart and 3 RSI lines on the child chart
+    private static final int SERIES_COUNT = 8;
+
+    /**
+     * Paint that keeps its color, the stub of the unit test jar does not
+     */
+    private static final class ColorPaint extends Paint {
+
+        private int mColor;
+
+        @Override
+        public void setColor(int color) {
+            mColor = color;
+        }
+
+        @Override
+        public int getColor() {
+            return mColor;
+        }
+    }
+
+    private static final class RecordingCanvas extends Canvas {
+
+        int callCount;
+
+        int segmentCount;
+
+        float checksum;
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            callCount++;
+            segmentCount++;
+            checksum += startX + startY + stopX + stopY;
+        }
+
+        @Override
+        public void drawLines(float[] points, int offset, int count, Paint paint) {
+            callCount++;
+            segmentCount += count / 4;
+            for (int i = offset; i < offset + count; i++) {
+                checksum += points[i];
+            }
+        }
+    }
+
+    private static float y(int series, int bar) {
+        return series * 40 + (bar * 7919 + series * 104729) % 97;
+    }
+
+    // Like drawK: every bar adds one segment per series, the MA lines share one paint with changing colors
+    private static void drawFrame(RecordingCanvas canvas, HTKLineLineBatch batch, Paint sharedPaint, Paint[] childPaints,
+                                  int bars, boolean batched) {
+        if (batched) {
+            batch.begin();
+        }
+        for (int bar = 1; bar < bars; bar++) {
+            float lastX = (bar - 1) * 10;
+            float x = bar * 10;
+            for (int series = 0; series < SERIES_COUNT; series++) {
+                Paint paint = series < 5 ? sharedPaint : childPaints[series - 5];
+                if (series < 5) {
+                    paint.setColor(0xFF000000 | series);
+                }
+                if (batched) {
+                    batch.add(paint, lastX, y(series, bar - 1), x, y(series, bar));
+                } else {
+                    canvas.drawLine(lastX, y(series, bar - 1), x, y(series, bar), paint);
+                }
+            }
+        }
+        if (batched) {
+            batch.flush(canvas);
+        }
+    }
+
+    private static long frameNanos(int bars, boolean batched, RecordingCanvas canvas) {
+        HTKLineLineBatch batch = new HTKLineLineBatch();
+        Paint sharedPaint = new ColorPaint();
+        Paint[] childPaints = {new ColorPaint(), new ColorPaint(), new ColorPaint()};
+        long[] frames = new long[31];
+        for (int frame = 0; frame < frames.length; frame++) {
+            canvas.callCount = 0;
+            canvas.segmentCount = 0;
+            long start = System.nanoTime();
+            drawFrame(canvas, batch, sharedPaint, childPaints, bars, batched);
+            frames[frame] = System.nanoTime() - start;
+        }
+        Arrays.sort(frames);
+        return frames[frames.length / 2];
+    }
+
+    @Test
+    public void oneDrawLinesPerSeriesAtEveryZoomLevel() {
+        RecordingCanvas canvas = new RecordingCanvas();
+        // Warm up both paths so neither is measured in the interpreter
+        for (int round = 0; round < 20; round++) {
+            frameNanos(VISIBLE_BARS[VISIBLE_BARS.length - 1], true, canvas);
+            frameNanos(VISIBLE_BARS[VISIBLE_BARS.length - 1], false, canvas);
+        }
+        for (int bars : VISIBLE_BARS) {
+            long direct = frameNanos(bars, false, canvas);
+            int directCalls = canvas.callCount;
+            int directSegments = canvas.segmentCount;
+            long batched = frameNanos(bars, true, canvas);
+            int batchedCalls = canvas.callCount;
+            System.out.println("bars=" + bars + " drawLine=" + direct / 1000 + "us/" + directCalls + " calls drawLines="
+                    + batched / 1000 + "us/" + batchedCalls + " calls");
+
+            assertEquals(SERIES_COUNT * (bars - 1), directCalls);
+            assertEquals(directSegments, canvas.segmentCount);
+            assertEquals(SERIES_COUNT, batchedCalls);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HTKLineRenderStatsTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    public void noSamples() {
+        HTKLineRenderStats stats = new HTKLineRenderStats();
+        assertEquals(0, stats.getSampleCount(HTKLineRenderStats.DRAW_K));
+        assertEquals(0, stats.getPercentileMillis(HTKLineRenderStats.DRAW_K, 50), 0);
+    }
+
+    @Test
+    public void nearestRankPercentiles() {
+        HTKLineRenderStats stats = new HTKLineRenderStats();
+        // 1ms to 100ms in shuffled order
+        for (int i = 0; i < 100; i++) {
+            stats.record(HTKLineRenderStats.DRAW_K, ((i * 37) % 100 + 1) * MILLIS);
+        }
+        assertEquals(100, stats.getSampleCount(HTKLineRenderStats.DRAW_K));
+        assertEquals(50, stats.getPercentileMillis(HTKLineRenderStats.DRAW_K, 50), 0);
+        assertEquals(95, stats.getPercentileMillis(HTKLineRenderStats.DRAW_K, 95), 0);
+        assertEquals(99, stats.getPercentileMillis(HTKLineRenderStats.DRAW_K, 99), 0);
+        assertEquals(100, stats.getMaxMillis(HTKLineRenderStats.DRAW_K), 0);
+        assertEquals(1, stats.getPercentileMillis(HTKLineRenderStats.DRAW_K, 0), 0);
+        // Other phases are kept apart
+        assertEquals(0, stats.getSampleCount(HTKLineRenderStats.DRAW_TEXT));
+    }
+
+    @Test
+    public void onlyTheLastWindowCounts() {
+        HTKLineRenderStats stats = new HTKLineRenderStats();
+        for (int i = 0; i < HTKLineRenderStats.WINDOW; i++) {
+            stats.record(HTKLineRenderStats.CALCULATE_VALUE, 500 * MILLIS);
+        }
+        for (int i = 0; i < HTKLineRenderStats.WINDOW; i++) {
+            stats.record(HTKLineRenderStats.CALCULATE_VALUE, 2 * MILLIS);
+        }
+        assertEquals(HTKLineRenderStats.WINDOW, stats.getSampleCount(HTKLineRenderStats.CALCULATE_VALUE));
+        assertEquals(2, stats.getMaxMillis(HTKLineRenderStats.CALCULATE_VALUE), 0);
+    }
+
+    @Test
+    public void framesAndReset() {
+        HTKLineRenderStats stats = new HTKLineRenderStats();
+        for (int i = 0; i < 5; i++) {
+            stats.beginFrame();
+            stats.mark(HTKLineRenderStats.CALCULATE_VALUE);
+            stats.endFrame();
+        }
+        assertEquals(5, stats.getFrameCount());
+        assertEquals(5, stats.getSampleCount(HTKLineRenderStats.CALCULATE_VALUE));
+        stats.reset();
+        assertEquals(0, stats.getFrameCount());
+        assertEquals(0, stats.getJankCount());
+        assertEquals(0, stats.getSampleCount(HTKLineRenderStats.CALCULATE_VALUE));
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decoding 1k, 10k and 100k bars from a modelArray JSON string against an
+ * encodeCandlesticks payload. java.util.Base64 stands in for android.util.Base64.
+ */
+public class KLineBinaryDecoderBenchmarkTest {
+
+    private static final int[] SIZES = {1000, 10000, 100000};
+
+    private static String json(int count) {
+        StringBuilder builder = new StringBuilder(count * 120);
+        builder.append("{\"modelArray\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            long time = 1700000000000L + i * 60000L;
+            builder.append("{\"id\":").append(time)
+                    .append(",\"dateString\":\"").append(time).append('"')
+                    .append(",\"open\":").append(i)
+                    .append(",\"high\":").append(i + 0.25)
+                    .append(",\"low\":").append(i + 0.5)
+                    .append(",\"close\":").append(i + 0.75)
+                    .append(",\"vol\":").append(i + 1)
+                    .append('}');
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private static long jsonNanos(String json, int count) {
+        long[] rounds = new long[5];
+        for (int round = 0; round < rounds.length; round++) {
+            long start = System.nanoTime();
+            HTKLineOptionReader reader = new HTKLineOptionReader();
+            reader.read(json);
+            rounds[round] = System.nanoTime() - start;
+            assertEquals(count, reader.getModelArray().size());
+        }
+        return median(rounds);
+    }
+
+    private static long binaryNanos(String payload, int count) {
+        long[] rounds = new long[5];
+        for (int round = 0; round < rounds.length; round++) {
+            long start = System.nanoTime();
+            KLineColumnStore store = KLineBinaryDecoder.decode(Base64.getDecoder().decode(payload), 0);
+            rounds[round] = System.nanoTime() - start;
+            assertEquals(count, store.size());
+        }
+        return median(rounds);
+    }
+
+    @Test
+    public void binaryDecodesFasterThanJson() {
+        String[] jsons = new String[SIZES.length];
+        String[] payloads = new String[SIZES.length];
+        for (int n = 0; n < SIZES.length; n++) {
+            jsons[n] = json(SIZES[n]);
+            payloads[n] = Base64.getEncoder().encodeToString(
+                    KLineBinaryDecoderTest.encode(KLineBinaryDecoder.VERSION, SIZES[n], SIZES[n]));
+        }
+        // Warm up both so neither is measured in the interpreter
+        for (int round = 0; round < 5; round++) {
+            jsonNanos(jsons[1], SIZES[1]);
+            binaryNanos(payloads[1], SIZES[1]);
+        }
+        long jsonLargest = 0;
+        long binaryLargest = 0;
+        for (int n = 0; n < SIZES.length; n++) {
+            long json = jsonNanos(jsons[n], SIZES[n]);
+            long binary = binaryNanos(payloads[n], SIZES[n]);
+            System.out.println("bars=" + SIZES[n] + " json=" + json / 1000 + "us (" + jsons[n].length() / 1024
+                    + "KB) binary=" + binary / 1000 + "us (" + payloads[n].length() / 1024 + "KB)");
+            jsonLargest = json;
+            binaryLargest = binary;
+        }
+        assertTrue("json " + jsonLargest + "ns, binary " + binaryLargest + "ns", binaryLargest < jsonLargest);
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KLineBinaryDecoderTest {
+
+    // Same layout as encodeCandlesticks in index.js, also used by KLineBinaryDecoderBenchmarkTest
+    static byte[] encode(int version, int count, int declaredCount) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + count * 28).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(version);
+        buffer.putInt(declaredCount);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(1700000000000L + i * 60000L);
+        }
+        for (int column = 0; column < 5; column++) {
+            for (int i = 0; i < count; i++) {
+                buffer.putFloat(i + column * 0.25f);
+            }
+        }
+        return buffer.array();
+    }
+
+    @Test
+    public void decodesEveryColumn() {
+        KLineColumnStore store = KLineBinaryDecoder.decode(encode(KLineBinaryDecoder.VERSION, 100, 100), 0);
+        assertEquals(100, store.size());
+        KLineEntity cursor = new KLineEntity();
+        for (int i = 0; i < 100; i++) {
+            store.read(i, cursor);
+            assertEquals(1700000000000L + i * 60000L, cursor.time);
+            assertEquals((float) (int) cursor.time, cursor.id, 0f);
+            assertEquals(i, cursor.Open, 0f);
+            assertEquals(i + 0.25f, cursor.High, 0f);
+            assertEquals(i + 0.5f, cursor.Low, 0f);
+            assertEquals(i + 0.75f, cursor.Close, 0f);
+            assertEquals(i + 1f, cursor.Volume, 0f);
+            assertEquals(0f, cursor.MA5Price, 0f);
+            assertTrue(cursor.maList.isEmpty());
+        }
+    }
+
+    @Test
+    public void limitKeepsTheNewestBars() {
+        KLineColumnStore store = KLineBinaryDecoder.decode(encode(KLineBinaryDecoder.VERSION, 100, 100), 30);
+        assertEquals(30, store.size());
+        assertEquals(1700000000000L + 70 * 60000L, store.getTime(0));
+        assertEquals(70.75f, store.getFloat(KLineColumnStore.CLOSE, 0), 0f);
+        assertEquals(99f, store.getFloat(KLineColumnStore.OPEN, 29), 0f);
+        // A limit above the count keeps everything
+        assertEquals(100, KLineBinaryDecoder.decode(encode(KLineBinaryDecoder.VERSION, 100, 100), 500).size());
+    }
+
+    @Test
+    public void emptyPayload() {
+        assertEquals(0, KLineBinaryDecoder.decode(encode(KLineBinaryDecoder.VERSION, 0, 0), 0).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnotherVersion() {
+        KLineBinaryDecoder.decode(encode(2, 10, 10), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsATruncatedPayload() {
+        KLineBinaryDecoder.decode(encode(KLineBinaryDecoder.VERSION, 10, 11), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAMissingHeader() {
+        KLineBinaryDecoder.decode(new byte[4], 0);
+    }
+}
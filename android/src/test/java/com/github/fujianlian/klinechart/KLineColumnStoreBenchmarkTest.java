@@ -0,0 +1,84 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Heap held by 100k bars, one entity per bar as before against the column store.
+ */
+public class KLineColumnStoreBenchmarkTest {
+
+    private static final int BAR_COUNT = 100000;
+
+    private static void fill(KLineEntity entity, int i) {
+        entity.id = i;
+        entity.time = i * 60000L;
+        entity.Open = i;
+        entity.High = i + 2;
+        entity.Low = i - 2;
+        entity.Close = i + 1;
+        entity.Volume = i * 10;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Collect until the number settles, one gc call is only a hint
+        for (int round = 0; round < 5; round++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static List<KLineEntity> entityList() {
+        List<KLineEntity> list = new ArrayList<>(BAR_COUNT);
+        for (int i = 0; i < BAR_COUNT; i++) {
+            KLineEntity entity = new KLineEntity();
+            fill(entity, i);
+            list.add(entity);
+        }
+        return list;
+    }
+
+    // Filled the way the binary decoder does it, through one reused entity without lists
+    private static KLineColumnStore columnStore() {
+        KLineColumnStore store = new KLineColumnStore(BAR_COUNT);
+        KLineEntity cursor = new KLineEntity();
+        cursor.selectedItemList = Collections.emptyList();
+        cursor.maList = Collections.emptyList();
+        cursor.maVolumeList = Collections.emptyList();
+        cursor.rsiList = Collections.emptyList();
+        cursor.wrList = Collections.emptyList();
+        for (int i = 0; i < BAR_COUNT; i++) {
+            fill(cursor, i);
+            store.add(cursor);
+        }
+        return store;
+    }
+
+    @Test
+    public void columnStoreHoldsLessHeapPerBar() {
+        long before = usedHeap();
+        List<KLineEntity> list = entityList();
+        long listBytes = usedHeap() - before;
+        assertTrue(list.size() == BAR_COUNT);
+        list = null;
+
+        before = usedHeap();
+        KLineColumnStore store = columnStore();
+        long storeBytes = usedHeap() - before;
+        assertTrue(store.size() == BAR_COUNT);
+
+        System.out.println("bars=" + BAR_COUNT + " entity list=" + listBytes / 1024 + "KB ("
+                + listBytes / BAR_COUNT + " B/bar) column store=" + storeBytes / 1024 + "KB ("
+                + storeBytes / BAR_COUNT + " B/bar)");
+        // 24 floats, a long and six references per bar against an object header and five lists per entity
+        assertTrue("entity list " + listBytes + " bytes, column store " + storeBytes + " bytes", storeBytes * 3 < listBytes * 2);
+    }
+}
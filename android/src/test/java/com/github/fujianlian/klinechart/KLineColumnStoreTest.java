@@ -0,0 +1,202 @@
+package com.github.fujianlian.klinechart;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KLineColumnStoreTest {
+
+    private static KLineEntity bar(long time) {
+        KLineEntity entity = new KLineEntity();
+        entity.time = time;
+        entity.id = time;
+        entity.Open = time;
+        entity.High = time + 2;
+        entity.Low = time - 2;
+        entity.Close = time + 1;
+        entity.Volume = time * 10;
+        entity.MA5Price = time + 0.5f;
+        entity.Date = "d" + time;
+        return entity;
+    }
+
+    private static List<KLineEntity> bars(long from, int count) {
+        List<KLineEntity> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(bar(from + i));
+        }
+        return list;
+    }
+
+    private static void assertSameBars(List<KLineEntity> expected, KLineColumnStore store) {
+        assertEquals(expected.size(), store.size());
+        KLineEntity cursor = new KLineEntity();
+        for (int i = 0; i < expected.size(); i++) {
+            KLineEntity bar = expected.get(i);
+            store.read(i, cursor);
+            assertEquals(bar.time, cursor.time);
+            assertEquals(bar.Close, cursor.Close, 0f);
+            assertEquals(bar.Volume, cursor.Volume, 0f);
+            assertEquals(bar.MA5Price, cursor.MA5Price, 0f);
+            assertEquals(bar.Date, cursor.Date);
+        }
+    }
+
+    @Test
+    public void growsAtBothEnds() {
+        KLineColumnStore store = new KLineColumnStore();
+        List<KLineEntity> expected = new ArrayList<>();
+        for (int page = 0; page < 20; page++) {
+            List<KLineEntity> tail = bars(1000 + page * 50, 50);
+            store.addAll(tail);
+            expected.addAll(tail);
+            List<KLineEntity> head = bars(1000 - (page + 1) * 30, 30);
+            store.addAll(0, head);
+            expected.addAll(0, head);
+        }
+        assertSameBars(expected, store);
+    }
+
+    @Test
+    public void prependReusesFreeSlotsInFront() {
+        KLineColumnStore store = new KLineColumnStore();
+        store.addAll(bars(1000, 100));
+        store.addAll(0, bars(990, 10));
+        int capacity = store.capacity();
+        // The first prepend left spare slots in front, the next small pages fit without growing
+        store.addAll(0, bars(985, 5));
+        store.add(0, bar(984));
+        assertEquals(capacity, store.capacity());
+        assertEquals(984, store.getTime(0));
+        assertEquals(1099, store.getTime(store.size() - 1));
+    }
+
+    @Test
+    public void trimsBothEndsAndCountsHeadRemovals() {
+        KLineColumnStore store = new KLineColumnStore();
+        store.addAll(bars(0, 100));
+        List<KLineEntity> expected = bars(0, 100);
+        store.takeChangedFrom();
+
+        store.subList(0, 10).clear();
+        expected.subList(0, 10).clear();
+        assertEquals(10, store.getRemovedCount());
+        assertEquals(Long.MAX_VALUE, store.takeChangedFrom());
+
+        store.subList(80, 90).clear();
+        expected.subList(80, 90).clear();
+        assertEquals(10, store.getRemovedCount());
+        assertEquals(10 + 80, store.takeChangedFrom());
+
+        store.remove(0);
+        expected.remove(0);
+        assertEquals(11, store.getRemovedCount());
+        assertSameBars(expected, store);
+
+        // Room freed at the head is reused by the next prepend
+        int capacity = store.capacity();
+        store.addAll(0, bars(0, 11));
+        expected.addAll(0, bars(0, 11));
+        assertEquals(capacity, store.capacity());
+        assertSameBars(expected, store);
+    }
+
+    @Test
+    public void matchesArrayListUnderRandomEdits() {
+        Random random = new Random(7);
+        KLineColumnStore store = new KLineColumnStore();
+        List<KLineEntity> expected = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            int index = random.nextInt(expected.size() + 1);
+            switch (random.nextInt(5)) {
+                case 0:
+                    KLineEntity entity = bar(step);
+                    store.add(index, entity);
+                    expected.add(index, entity);
+                    break;
+                case 1:
+                    List<KLineEntity> page = bars(step, random.nextInt(8));
+                    store.addAll(index, page);
+                    expected.addAll(index, page);
+                    break;
+                case 2:
+                    if (!expected.isEmpty()) {
+                        int removed = Math.min(index, expected.size() - 1);
+                        store.remove(removed);
+                        expected.remove(removed);
+                    }
+                    break;
+                case 3:
+                    int to = index + random.nextInt(expected.size() - index + 1);
+                    store.subList(index, to).clear();
+                    expected.subList(index, to).clear();
+                    break;
+                default:
+                    if (index < expected.size()) {
+                        KLineEntity replaced = bar(step);
+                        store.set(index, replaced);
+                        expected.set(index, replaced);
+                    }
+                    break;
+            }
+        }
+        assertSameBars(expected, store);
+    }
+
+    @Test
+    public void indexOfTimeFindsBarsAndInsertionPoints() {
+        KLineColumnStore store = new KLineColumnStore();
+        for (int i = 0; i < 50; i++) {
+            store.add(bar(i * 10));
+        }
+        store.subList(0, 5).clear();
+        assertEquals(0, store.indexOfTime(50));
+        assertEquals(44, store.indexOfTime(490));
+        assertEquals(-1, store.indexOfTime(0));
+        assertEquals(-2, store.indexOfTime(55));
+        assertEquals(-46, store.indexOfTime(1000));
+    }
+
+    @Test
+    public void readReusesTheCursor() {
+        KLineColumnStore store = new KLineColumnStore(bars(0, 1000));
+        KLineEntity cursor = new KLineEntity();
+        assertSame(cursor, store.read(10, cursor));
+        assertTrue(store.read(10, cursor).maList.isEmpty());
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        float sum = 0;
+        // Warm up so the measured loop runs compiled
+        for (int round = 0; round < 20; round++) {
+            sum += readAll(store, cursor);
+        }
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        sum += readAll(store, cursor);
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(sum != 0);
+        assertEquals("read allocated " + allocated + " bytes", 0, allocated);
+    }
+
+    private static float readAll(KLineColumnStore store, KLineEntity cursor) {
+        float sum = 0;
+        for (int i = 0; i < store.size(); i++) {
+            sum += store.read(i, cursor).Close;
+        }
+        return sum;
+    }
+}
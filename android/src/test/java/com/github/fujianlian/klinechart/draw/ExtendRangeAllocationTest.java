@@ -0,0 +1,117 @@
+package com.github.fujianlian.klinechart.draw;
+
+import com.github.fujianlian.klinechart.HTKLineIndicatorEngine;
+import com.github.fujianlian.klinechart.HTKLineTargetItem;
+import com.github.fujianlian.klinechart.KLineColumnStore;
+import com.github.fujianlian.klinechart.KLineEntity;
+import com.github.fujianlian.klinechart.base.IChartDraw;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The per-frame range pass over a 500-bar viewport, reading each bar into a cursor and
+ * widening the main, volume and child ranges, must not allocate once it runs compiled.
+ */
+public class ExtendRangeAllocationTest {
+
+    private static final int VIEWPORT = 500;
+
+    // The constructors need a view and its Context, extendRange only reads the bar and the draw state
+    @SuppressWarnings("unchecked")
+    private static <T> T withoutConstructor(Class<T> drawClass) throws Exception {
+        Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        Object unsafe = field.get(null);
+        return (T) unsafe.getClass().getMethod("allocateInstance", Class.class).invoke(unsafe, drawClass);
+    }
+
+    private static List<HTKLineTargetItem> targets(int... periods) {
+        List<HTKLineTargetItem> itemList = new ArrayList<>();
+        for (int i = 0; i < periods.length; i++) {
+            itemList.add(new HTKLineTargetItem(String.valueOf(periods[i]), 0, true, i));
+        }
+        return itemList;
+    }
+
+    private static KLineColumnStore bars() {
+        Random random = new Random(3);
+        KLineColumnStore store = new KLineColumnStore();
+        float price = 100;
+        for (int i = 0; i < VIEWPORT; i++) {
+            KLineEntity entity = new KLineEntity();
+            entity.time = i;
+            entity.Open = price;
+            price += (random.nextFloat() - 0.5f) * 2;
+            entity.Close = price;
+            entity.High = Math.max(entity.Open, entity.Close) + random.nextFloat();
+            entity.Low = Math.min(entity.Open, entity.Close) - random.nextFloat();
+            entity.Volume = random.nextFloat() * 1000;
+            store.add(entity);
+        }
+        HTKLineIndicatorEngine engine = new HTKLineIndicatorEngine();
+        engine.setTargetLists(targets(5, 10, 20), targets(5, 10), targets(6, 12, 24), targets(14));
+        engine.calculate(store);
+        return store;
+    }
+
+    private static float[] rangePass(KLineColumnStore store, KLineEntity cursor, float[] range, MainDraw mainDraw,
+                                     VolumeDraw volumeDraw, IChartDraw<KLineEntity>[] childDraws) {
+        for (int i = 0; i < store.size(); i++) {
+            KLineEntity point = store.read(i, cursor);
+            mainDraw.extendRange(point, range);
+            volumeDraw.extendRange(point, range);
+            for (IChartDraw<KLineEntity> childDraw : childDraws) {
+                childDraw.extendRange(point, range);
+            }
+        }
+        return range;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rangePassDoesNotAllocate() throws Exception {
+        MainDraw mainDraw = withoutConstructor(MainDraw.class);
+        mainDraw.setPrimaryStatus(PrimaryStatus.MA);
+        VolumeDraw volumeDraw = withoutConstructor(VolumeDraw.class);
+        IChartDraw<KLineEntity>[] childDraws = new IChartDraw[]{
+                withoutConstructor(MACDDraw.class), withoutConstructor(KDJDraw.class),
+                withoutConstructor(RSIDraw.class), withoutConstructor(WRDraw.class)
+        };
+        KLineColumnStore store = bars();
+        KLineEntity cursor = new KLineEntity();
+        float[] range = new float[2];
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up so the measured pass runs compiled
+        for (int round = 0; round < 200; round++) {
+            range[IChartDraw.RANGE_MAX] = Float.NEGATIVE_INFINITY;
+            range[IChartDraw.RANGE_MIN] = Float.POSITIVE_INFINITY;
+            rangePass(store, cursor, range, mainDraw, volumeDraw, childDraws);
+        }
+        range[IChartDraw.RANGE_MAX] = Float.NEGATIVE_INFINITY;
+        range[IChartDraw.RANGE_MIN] = Float.POSITIVE_INFINITY;
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        rangePass(store, cursor, range, mainDraw, volumeDraw, childDraws);
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(range[IChartDraw.RANGE_MAX] > range[IChartDraw.RANGE_MIN]);
+        assertEquals("range pass allocated " + allocated + " bytes", 0, allocated);
+    }
+}
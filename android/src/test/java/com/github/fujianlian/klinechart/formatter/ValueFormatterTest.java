@@ -0,0 +1,65 @@
+package com.github.fujianlian.klinechart.formatter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ValueFormatterTest {
+
+    private static void assertSameAsBigDecimal(float value) {
+        for (int rightLength = 0; rightLength <= 8; rightLength++) {
+            assertEquals(value + " with " + rightLength + " decimals",
+                    ValueFormatter.formatDecimal(value, rightLength, true),
+                    ValueFormatter.format(value, rightLength, true));
+        }
+    }
+
+    @Test
+    public void truncatesAndPads() {
+        assertEquals("1.2345", ValueFormatter.format(1.23456f, 4, true));
+        assertEquals("1.5000", ValueFormatter.format(1.5f, 4, true));
+        assertEquals("-0.0001", ValueFormatter.format(-0.00012f, 4, true));
+        assertEquals("12", ValueFormatter.format(12.99f, 0, true));
+    }
+
+    @Test
+    public void edgeCasesMatchBigDecimal() {
+        float[] values = {
+                0f, -0f, 1f, -1f, 0.1f, 0.5f, 9.99999f, 10f, 123456.79f, -98765.43f,
+                1e-5f, 1.5e-7f, -2.5e-10f, 1e7f, 1.2345678e9f, 3.4028235e38f, Float.MIN_VALUE,
+                Float.MIN_NORMAL, 0.001f, 0.0001f, 100000f, 9999999f
+        };
+        for (float value : values) {
+            assertSameAsBigDecimal(value);
+        }
+    }
+
+    @Test
+    public void randomValuesMatchBigDecimal() {
+        Random random = new Random(21);
+        for (int i = 0; i < 20000; i++) {
+            // Every bit pattern, mostly prices around 1e-6 to 1e9 and a few extremes
+            float value = i % 4 == 0
+                    ? Float.intBitsToFloat(random.nextInt())
+                    : (float) ((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 6));
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                continue;
+            }
+            assertSameAsBigDecimal(value);
+        }
+    }
+
+    @Test
+    public void cachedResultsStayCorrect() {
+        // Values sharing cache slots must never return each other's text
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 2000; i++) {
+                float value = i * 0.37f;
+                assertEquals(ValueFormatter.formatDecimal(value, 2, true), ValueFormatter.format(value, 2, true));
+                assertEquals(ValueFormatter.formatDecimal(value, 5, true), ValueFormatter.format(value, 5, true));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.fujianlian.klinechart.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RangeExtremaTreeTest {
+
+    @Test
+    public void capacityRoundsUpToAPowerOfTwo() {
+        RangeExtremaTree tree = new RangeExtremaTree();
+        tree.reset(1);
+        assertEquals(2, tree.capacity());
+        tree.reset(100);
+        assertEquals(128, tree.capacity());
+        // Shrinking keeps the larger arrays
+        tree.reset(10);
+        assertEquals(128, tree.capacity());
+    }
+
+    @Test
+    public void queriesMatchALinearScan() {
+        Random random = new Random(11);
+        int count = 300;
+        float[] max = new float[count];
+        float[] min = new float[count];
+        RangeExtremaTree tree = new RangeExtremaTree();
+        tree.reset(count);
+        for (int i = 0; i < count; i++) {
+            // Few distinct values, so ties have to go to the leftmost leaf
+            max[i] = random.nextInt(20);
+            min[i] = -random.nextInt(20);
+            tree.set(i, max[i], min[i]);
+        }
+        tree.rebuild(0, count);
+        for (int round = 0; round < 2000; round++) {
+            if (round % 10 == 0) {
+                // Refresh a run of leaves like a tail update does
+                int from = random.nextInt(count);
+                int to = Math.min(count, from + 1 + random.nextInt(8));
+                for (int i = from; i < to; i++) {
+                    max[i] = random.nextInt(20);
+                    min[i] = -random.nextInt(20);
+                    tree.set(i, max[i], min[i]);
+                }
+                tree.rebuild(from, to);
+            }
+            int from = random.nextInt(count);
+            int to = from + random.nextInt(count - from);
+            tree.query(from, to);
+            int maxLeaf = from;
+            int minLeaf = from;
+            for (int i = from + 1; i <= to; i++) {
+                if (max[i] > max[maxLeaf]) {
+                    maxLeaf = i;
+                }
+                if (min[i] < min[minLeaf]) {
+                    minLeaf = i;
+                }
+            }
+            assertEquals(max[maxLeaf], tree.getMax(), 0f);
+            assertEquals(min[minLeaf], tree.getMin(), 0f);
+            assertEquals(maxLeaf, tree.getMaxLeaf());
+            assertEquals(minLeaf, tree.getMinLeaf());
+        }
+    }
+
+    @Test
+    public void nanWinsLikeMathMax() {
+        RangeExtremaTree tree = new RangeExtremaTree();
+        tree.reset(4);
+        tree.set(0, 1f, 1f);
+        tree.set(1, Float.NaN, Float.NaN);
+        tree.set(2, 5f, -5f);
+        tree.rebuild(0, 3);
+        tree.query(0, 2);
+        assertTrue(Float.isNaN(tree.getMax()));
+        assertTrue(Float.isNaN(tree.getMin()));
+        assertEquals(1, tree.getMaxLeaf());
+        tree.query(2, 2);
+        assertEquals(5f, tree.getMax(), 0f);
+        assertEquals(-5f, tree.getMin(), 0f);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.fujianlian.klinechart.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RollingExtremaTest {
+
+    @Test
+    public void emptyWindow() {
+        RollingExtrema extrema = new RollingExtrema(14);
+        assertEquals(Float.MIN_VALUE, extrema.getMax(), 0f);
+        assertEquals(Float.MAX_VALUE, extrema.getMin(), 0f);
+    }
+
+    @Test
+    public void matchesRescanningTheWindow() {
+        Random random = new Random(5);
+        for (int window : new int[]{1, 2, 9, 14, 15, 60}) {
+            float[] high = new float[1000];
+            float[] low = new float[1000];
+            RollingExtrema extrema = new RollingExtrema(window);
+            for (int i = 0; i < high.length; i++) {
+                high[i] = random.nextInt(50);
+                low[i] = high[i] - random.nextInt(10);
+                extrema.push(high[i], low[i]);
+                float max = -Float.MAX_VALUE;
+                float min = Float.MAX_VALUE;
+                for (int j = Math.max(0, i - window + 1); j <= i; j++) {
+                    max = Math.max(max, high[j]);
+                    min = Math.min(min, low[j]);
+                }
+                assertEquals("window " + window + " bar " + i, max, extrema.getMax(), 0f);
+                assertEquals("window " + window + " bar " + i, min, extrema.getMin(), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void resetChangesTheWindow() {
+        RollingExtrema extrema = new RollingExtrema(3);
+        extrema.push(10, 1);
+        extrema.push(5, 2);
+        extrema.reset(2);
+        assertEquals(2, extrema.getWindow());
+        extrema.push(4, 3);
+        extrema.push(6, 4);
+        extrema.push(5, 5);
+        assertEquals(6, extrema.getMax(), 0f);
+        assertEquals(4, extrema.getMin(), 0f);
+    }
+}
@@ -16,26 +16,94 @@ declare module 'react-native-kline-view' {
     labelDescriptionColor?: string; // Optional color for the description text (defaults to labelColor if not specified)
   }
 
+  export interface OrderLineDiff {
+    add?: OrderLine[];
+    update?: OrderLine[];
+    remove?: string[]; // ids, removed before add and update are applied
+  }
+
+  export interface OrderLinesEvent {
+    count: number;
+    orderLines?: OrderLine[]; // only in the answer to getOrderLines
+  }
+
+  export interface RenderPhaseStats {
+    count: number; // samples the percentiles are computed from
+    p50: number; // milliseconds
+    p95: number;
+    p99: number;
+    max: number;
+  }
+
+  export interface RenderStats {
+    frameCount: number;
+    jankCount: number; // frames longer than jankThresholdMs
+    jankThresholdMs: number;
+    window: number; // number of recent frames kept per phase
+    phases: {
+      calculateValue: RenderPhaseStats;
+      drawGird: RenderPhaseStats;
+      drawK: RenderPhaseStats;
+      drawText: RenderPhaseStats;
+      drawMaxAndMin: RenderPhaseStats;
+      drawOrderLines: RenderPhaseStats;
+      drawValue: RenderPhaseStats;
+      drawClosePriceLine: RenderPhaseStats;
+      drawSelector: RenderPhaseStats;
+      drawContext: RenderPhaseStats;
+      frame: RenderPhaseStats;
+    };
+    optionList: {
+      lastParseMs: number;
+      maxParseMs: number;
+      loadedCount: number;
+      droppedCount: number; // optionList updates replaced before parsing, or parsed after a newer one arrived
+    };
+    candlesticks: {
+      tickCount: number; // updateLastCandlestick / updateCandlesticks bars received
+      flushCount: number; // frames they were applied in
+    };
+    lines: {
+      segmentCount: number; // indicator line segments in the last drawK
+      drawCallCount: number; // drawLines calls they took
+    };
+  }
+
   export interface RNKLineViewRef {
+    // On Android a bar with a known id replaces that bar and an unknown id is inserted in time order
     updateLastCandlestick: (candlestick: any) => void;
+    updateCandlesticks: (candlesticks: any[]) => void; // Android only, same matching as updateLastCandlestick
     addCandlesticksAtTheEnd: (candlesticks: any[]) => void;
     addCandlesticksAtTheStart: (candlesticks: any[]) => void;
+    addCandlestickBufferAtTheEnd: (candlesticks: any[] | string) => void; // Android only, string is an encodeCandlesticks payload
+    addCandlestickBufferAtTheStart: (candlesticks: any[] | string) => void; // Android only
     addOrderLine: (orderLine: OrderLine) => void;
     removeOrderLine: (orderLineId: string) => void;
     updateOrderLine: (orderLine: OrderLine) => void;
-    getOrderLines: () => OrderLine[];
+    getOrderLines: () => void; // Android answers through onOrderLines with { count, orderLines }
+    applyOrderLineDiff: (diff: OrderLineDiff) => void; // Android only
+    replaceOrderLines: (orderLines: OrderLine[]) => void; // Android only
+    getRenderStats: () => void; // Android only, answered through onRenderStats
   }
 
   export interface RNKLineViewProps extends ViewProps {
     style?: ViewStyle;
-    optionList?: string;
+    optionList?: string; // JSON, see README. On Android maxBarCount is raised to at least the longest indicator window + 1
     onDrawItemDidTouch?: (event: any) => void;
     onScrollLeft?: (event: any) => void;
     onChartTouch?: (event: any) => void;
     onDrawItemComplete?: (event: any) => void;
     onDrawPointComplete?: (event: any) => void;
+    onRenderStats?: (event: { nativeEvent: RenderStats }) => void;
+    onOrderLines?: (event: { nativeEvent: OrderLinesEvent }) => void;
   }
 
+  /**
+   * Packs candlesticks (id/time, open, high, low, close, vol) into a base64 payload
+   * for optionList.modelBuffer, which Android decodes without building a JSON tree
+   */
+  export function encodeCandlesticks(candlesticks: any[]): string;
+
   export default class RNKLineView extends Component<RNKLineViewProps> {
     // Component ref methods will be available through imperative handle
   }
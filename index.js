@@ -3,6 +3,50 @@ import { requireNativeComponent, UIManager, findNodeHandle, Platform } from 'rea
 
 const NativeRNKLineView = requireNativeComponent('RNKLineView');
 
+const BASE64_ALPHABET = 'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/';
+
+const encodeBase64 = (bytes) => {
+  let output = '';
+  let index = 0;
+  for (; index + 2 < bytes.length; index += 3) {
+    const value = (bytes[index] << 16) | (bytes[index + 1] << 8) | bytes[index + 2];
+    output += BASE64_ALPHABET[(value >> 18) & 63] + BASE64_ALPHABET[(value >> 12) & 63] +
+      BASE64_ALPHABET[(value >> 6) & 63] + BASE64_ALPHABET[value & 63];
+  }
+  if (index < bytes.length) {
+    const hasSecond = index + 1 < bytes.length;
+    const value = (bytes[index] << 16) | (hasSecond ? bytes[index + 1] << 8 : 0);
+    output += BASE64_ALPHABET[(value >> 18) & 63] + BASE64_ALPHABET[(value >> 12) & 63] +
+      (hasSecond ? BASE64_ALPHABET[(value >> 6) & 63] : '=') + '=';
+  }
+  return output;
+};
+
+// Packs candlesticks into the little-endian columnar payload read by the native side
+// as optionList.modelBuffer: int32 version, int32 count, int64 time[], then float32
+// open[], high[], low[], close[] and vol[]
+export const encodeCandlesticks = (candlesticks) => {
+  const count = candlesticks.length;
+  const buffer = new ArrayBuffer(8 + count * 28);
+  const view = new DataView(buffer);
+  view.setInt32(0, 1, true);
+  view.setInt32(4, count, true);
+  const floatOffset = 8 + count * 8;
+  for (let i = 0; i < count; i++) {
+    const item = candlesticks[i];
+    const time = Number(item.id != null ? item.id : item.time) || 0;
+    view.setUint32(8 + i * 8, time % 4294967296, true);
+    view.setInt32(8 + i * 8 + 4, Math.floor(time / 4294967296), true);
+    const volume = Number(item.vol);
+    view.setFloat32(floatOffset + i * 4, item.open, true);
+    view.setFloat32(floatOffset + (count + i) * 4, item.high, true);
+    view.setFloat32(floatOffset + (count * 2 + i) * 4, item.low, true);
+    view.setFloat32(floatOffset + (count * 3 + i) * 4, item.close, true);
+    view.setFloat32(floatOffset + (count * 4 + i) * 4, Number.isNaN(volume) ? 0 : volume, true);
+  }
+  return encodeBase64(new Uint8Array(buffer));
+};
+
 const RNKLineView = forwardRef((props, ref) => {
   const nativeRef = useRef(null);
 
@@ -27,6 +71,24 @@ const RNKLineView = forwardRef((props, ref) => {
         console.warn('No nodeHandle found for RNKLineView');
       }
     },
+    // Android only, every bar is upserted by time; ticks for the same bar within
+    // one frame are coalesced, like updateLastCandlestick
+    updateCandlesticks: (candlesticks) => {
+      if (Platform.OS !== 'android') {
+        console.warn('updateCandlesticks is only supported on Android');
+        return;
+      }
+      const nodeHandle = findNodeHandle(nativeRef.current);
+      if (nodeHandle) {
+        UIManager.dispatchViewManagerCommand(
+          nodeHandle,
+          'updateCandlesticks',
+          [candlesticks]
+        );
+      } else {
+        console.warn('No nodeHandle found for RNKLineView');
+      }
+    },
     addCandlesticksAtTheEnd: (candlesticks) => {
       const nodeHandle = findNodeHandle(nativeRef.current);
       if (nodeHandle) {
@@ -67,6 +129,41 @@ const RNKLineView = forwardRef((props, ref) => {
         console.warn('No nodeHandle found for RNKLineView');
       }
     },
+    // Android only, the bars travel as one encodeCandlesticks payload and are copied
+    // column by column into the native store. Pass candlesticks or an encoded payload
+    addCandlestickBufferAtTheEnd: (candlesticks) => {
+      if (Platform.OS !== 'android') {
+        console.warn('addCandlestickBufferAtTheEnd is only supported on Android');
+        return;
+      }
+      const nodeHandle = findNodeHandle(nativeRef.current);
+      if (nodeHandle) {
+        UIManager.dispatchViewManagerCommand(
+          nodeHandle,
+          'addCandlestickBufferAtTheEnd',
+          [typeof candlesticks === 'string' ? candlesticks : encodeCandlesticks(candlesticks)]
+        );
+      } else {
+        console.warn('No nodeHandle found for RNKLineView');
+      }
+    },
+    // Android only, see addCandlestickBufferAtTheEnd
+    addCandlestickBufferAtTheStart: (candlesticks) => {
+      if (Platform.OS !== 'android') {
+        console.warn('addCandlestickBufferAtTheStart is only supported on Android');
+        return;
+      }
+      const nodeHandle = findNodeHandle(nativeRef.current);
+      if (nodeHandle) {
+        UIManager.dispatchViewManagerCommand(
+          nodeHandle,
+          'addCandlestickBufferAtTheStart',
+          [typeof candlesticks === 'string' ? candlesticks : encodeCandlesticks(candlesticks)]
+        );
+      } else {
+        console.warn('No nodeHandle found for RNKLineView');
+      }
+    },
     addOrderLine: (orderLine) => {
       const nodeHandle = findNodeHandle(nativeRef.current);
       if (nodeHandle) {
@@ -127,6 +224,7 @@ const RNKLineView = forwardRef((props, ref) => {
         console.warn('No nodeHandle found for RNKLineView');
       }
     },
+    // Returns nothing, on Android the lines arrive through the onOrderLines prop
     getOrderLines: () => {
       const nodeHandle = findNodeHandle(nativeRef.current);
       if (nodeHandle) {
@@ -145,7 +243,59 @@ const RNKLineView = forwardRef((props, ref) => {
         }
       } else {
         console.warn('No nodeHandle found for RNKLineView');
-        return [];
+      }
+    },
+    // Android only, applies { add, update, remove } as one change, the resulting
+    // line count arrives through the onOrderLines prop
+    applyOrderLineDiff: (diff) => {
+      if (Platform.OS !== 'android') {
+        console.warn('applyOrderLineDiff is only supported on Android');
+        return;
+      }
+      const nodeHandle = findNodeHandle(nativeRef.current);
+      if (nodeHandle) {
+        UIManager.dispatchViewManagerCommand(
+          nodeHandle,
+          'applyOrderLineDiff',
+          [diff]
+        );
+      } else {
+        console.warn('No nodeHandle found for RNKLineView');
+      }
+    },
+    // Android only, replaces every order line as one change, the resulting
+    // line count arrives through the onOrderLines prop
+    replaceOrderLines: (orderLines) => {
+      if (Platform.OS !== 'android') {
+        console.warn('replaceOrderLines is only supported on Android');
+        return;
+      }
+      const nodeHandle = findNodeHandle(nativeRef.current);
+      if (nodeHandle) {
+        UIManager.dispatchViewManagerCommand(
+          nodeHandle,
+          'replaceOrderLines',
+          [orderLines]
+        );
+      } else {
+        console.warn('No nodeHandle found for RNKLineView');
+      }
+    },
+    // Android only, the result arrives through the onRenderStats prop
+    getRenderStats: () => {
+      if (Platform.OS !== 'android') {
+        console.warn('getRenderStats is only supported on Android');
+        return;
+      }
+      const nodeHandle = findNodeHandle(nativeRef.current);
+      if (nodeHandle) {
+        UIManager.dispatchViewManagerCommand(
+          nodeHandle,
+          'getRenderStats',
+          []
+        );
+      } else {
+        console.warn('No nodeHandle found for RNKLineView');
       }
     }
   }));